@@ -0,0 +1,56 @@
+package com.esotericsoftware.kryonet;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Direct buffers of a single size, shared by the connections of an end point. A connection only holds buffers while it has bytes
+ * waiting to be written or a partially received object, so idle connections need no buffer memory. Objects larger than the
+ * pooled size get a temporary heap buffer that is left to the garbage collector. This class is thread safe.
+ */
+class BufferPool {
+	final int bufferSize;
+	private final int maxFree;
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue();
+	private final AtomicInteger freeCount = new AtomicInteger();
+
+	/**
+	 * @param maxFree The number of returned buffers that are kept for reuse. Any more are left to the garbage collector.
+	 */
+	public BufferPool (int bufferSize, int maxFree) {
+		this.bufferSize = bufferSize;
+		this.maxFree = maxFree;
+	}
+
+	/**
+	 * Returns a cleared buffer, allocating a new one if none is free.
+	 */
+	public ByteBuffer obtain () {
+		ByteBuffer buffer = free.poll();
+		if (buffer == null) return ByteBuffer.allocateDirect(bufferSize);
+		freeCount.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a cleared buffer with room for at least the specified number of bytes.
+	 */
+	public ByteBuffer obtain (int size) {
+		if (size > bufferSize) return ByteBuffer.allocate(size);
+		return obtain();
+	}
+
+	/**
+	 * Returns a buffer obtained from this pool. The caller must not use it afterward.
+	 */
+	public void free (ByteBuffer buffer) {
+		if (buffer.capacity() != bufferSize) return;
+		if (freeCount.incrementAndGet() > maxFree) {
+			freeCount.decrementAndGet();
+			return;
+		}
+		free.add(buffer);
+	}
+}
@@ -64,20 +64,21 @@ public class Client extends Connection implements EndPoint {
 	}
 
 	/**
-	 * @param writeBufferSize One buffer of this size is allocated. Objects are serialized to the write buffer where the bytes are
-	 *           queued until they can be written to the socket.
+	 * @param writeBufferSize The maximum number of bytes queued for a connection until they can be written to the socket.
 	 *           <p>
 	 *           Normally the socket is writable and the bytes are written immediately. If the socket cannot be written to and
-	 *           enough serialized objects are queued to overflow the buffer, then the connection will be closed.
+	 *           enough serialized objects are queued to exceed this size, then the connection will be closed.
 	 *           <p>
 	 *           The write buffer should be sized at least as large as the largest object that will be sent, plus some head room to
 	 *           allow for some serialized objects to be queued in case the buffer is temporarily not writable. The amount of head
 	 *           room needed is dependent upon the size of objects being sent and how often they are sent.
-	 * @param objectBufferSize Two (using only TCP) or four (using both TCP and UDP) buffers of this size are allocated. These
-	 *           buffers are used to hold the bytes for a single object graph until it can be sent over the network or
-	 *           deserialized.
+	 * @param objectBufferSize The size of the buffers used to hold the bytes for a single object graph until it can be sent over
+	 *           the network or deserialized. TCP buffers are direct and only held while there are bytes queued for writing or a
+	 *           partially received object.
 	 *           <p>
-	 *           The object buffers should be sized at least as large as the largest object that will be sent or received.
+	 *           The object buffers should be sized for the objects that are commonly sent. Larger objects sent over TCP are held
+	 *           in a temporary buffer, up to {@link Connection#setMaxObjectSize(int)}. Objects sent over UDP must fit in the
+	 *           object buffer.
 	 */
 	public Client (int writeBufferSize, int objectBufferSize) {
 		this(writeBufferSize, objectBufferSize, new Kryo());
@@ -94,7 +95,7 @@ public class Client extends Connection implements EndPoint {
 		kryo.register(DiscoverHost.class);
 		kryo.register(Ping.class);
 
-		initialize(kryo, writeBufferSize, objectBufferSize);
+		initialize(kryo, writeBufferSize, new BufferPool(objectBufferSize, 4), null);
 
 		try {
 			selector = Selector.open();
@@ -156,7 +157,7 @@ public class Client extends Connection implements EndPoint {
 		}
 		id = -1;
 		try {
-			if (udpPort != -1) udp = new UdpConnection(kryo, tcp.readBuffer.capacity());
+			if (udpPort != -1) udp = new UdpConnection(kryo, tcp.objectBufferSize);
 
 			long endTime;
 			synchronized (updateLock) {
@@ -306,7 +307,7 @@ public class Client extends Connection implements EndPoint {
 							notifyReceived(object);
 						}
 					}
-					if ((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE) tcp.writeOperation();
+					if ((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE) tcp.writeOperation(this);
 				} catch (CancelledKeyException ignored) {
 					// Connection is closed.
 				}
@@ -318,7 +319,8 @@ public class Client extends Connection implements EndPoint {
 				if (DEBUG) debug("kryonet", this + " timed out.");
 				close();
 			} else {
-				if (tcp.needsKeepAlive(time)) sendTCP(FrameworkMessage.keepAlive);
+				// A ping keeps the connection alive and measures the return trip time.
+				if (tcp.needsKeepAlive(time)) updateReturnTripTime();
 				if (udp != null && udpRegistered && udp.needsKeepAlive(time)) sendUDP(FrameworkMessage.keepAlive);
 			}
 		}
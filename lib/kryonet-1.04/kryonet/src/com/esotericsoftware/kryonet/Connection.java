@@ -7,6 +7,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 import com.esotericsoftware.kryo.Context;
@@ -28,6 +29,8 @@ public class Connection {
 	TcpConnection tcp;
 	UdpConnection udp;
 	InetSocketAddress udpRemoteAddress;
+	SelectorThread selectorThread;
+	NetworkStats stats;
 	private Listener[] listeners = {};
 	private Object listenerLock = new Object();
 	private int lastPingID;
@@ -38,8 +41,12 @@ public class Connection {
 	protected Connection () {
 	}
 
-	void initialize (Kryo kryo, int writeBufferSize, int objectBufferSize) {
-		tcp = new TcpConnection(kryo, writeBufferSize, objectBufferSize);
+	/**
+	 * @param aggregateStats May be null.
+	 */
+	void initialize (Kryo kryo, int writeBufferSize, BufferPool bufferPool, NetworkStats aggregateStats) {
+		stats = new NetworkStats(aggregateStats);
+		tcp = new TcpConnection(kryo, writeBufferSize, bufferPool, stats);
 	}
 
 	/**
@@ -63,9 +70,47 @@ public class Connection {
 	 * @see Kryo#register(Class, com.esotericsoftware.kryo.Serializer)
 	 */
 	public int sendTCP (Object object) {
+		if (object == null) throw new IllegalArgumentException("object cannot be null.");
+		return sendTCP(object, null);
+	}
+
+	/**
+	 * Sends an object over TCP that supersedes the previous object sent with this method, such as a state snapshot. If the
+	 * previous object is still queued because the socket is not writable, it is discarded. If the write queue is at the
+	 * {@link #setWriteWatermarks(int, int) high watermark} or the object would overflow the write buffer, the object is dropped.
+	 * This lets a slow remote end fall behind rather than be disconnected.
+	 * @return The number of bytes sent or queued, or -1 if the object was dropped.
+	 */
+	public int sendLatestTCP (Object object) {
 		if (object == null) throw new IllegalArgumentException("object cannot be null.");
 		try {
-			int length = tcp.send(this, object);
+			int length = tcp.sendLatest(this, object);
+			if (length > 0) stats.sentTcp(length);
+			if (length == -1) {
+				if (DEBUG) debug("kryonet", this + " dropped TCP: " + object.getClass().getSimpleName());
+			} else if (DEBUG && !(object instanceof FrameworkMessage)) {
+				debug("kryonet", this + " sent latest TCP: " + object.getClass().getSimpleName() + " (" + length + ")");
+			}
+			return length;
+		} catch (IOException ex) {
+			if (DEBUG) debug("kryonet", "Unable to send TCP with connection: " + this, ex);
+			close();
+			return 0;
+		} catch (SerializationException ex) {
+			if (ERROR) error("kryonet", "Unable to send TCP with connection: " + this, ex);
+			close();
+			return 0;
+		}
+	}
+
+	/**
+	 * @param framed If not null, the bytes for the object already serialized by
+	 *           {@link TcpConnection#serialize(Kryo, Connection, Object, ByteBuffer)}.
+	 */
+	int sendTCP (Object object, ByteBuffer framed) {
+		try {
+			int length = framed == null ? tcp.send(this, object) : tcp.send(this, object, framed);
+			if (length > 0) stats.sentTcp(length);
 			if (length == 0) {
 				if (TRACE) trace("kryonet", this + " TCP had nothing to send.");
 			} else if (DEBUG) {
@@ -100,6 +145,13 @@ public class Connection {
 	 */
 	public int sendUDP (Object object) {
 		if (object == null) throw new IllegalArgumentException("object cannot be null.");
+		return sendUDP(object, null);
+	}
+
+	/**
+	 * @param data If not null, the bytes for the object that have already been serialized.
+	 */
+	int sendUDP (Object object, ByteBuffer data) {
 		SocketAddress address = udpRemoteAddress;
 		if (address == null && udp != null) address = udp.connectedAddress;
 		if (address == null && isConnected) throw new IllegalStateException("Connection is not connected via UDP.");
@@ -110,7 +162,10 @@ public class Connection {
 		try {
 			if (address == null) throw new SocketException("Connection is closed.");
 
-			int length = udp.send(this, object, address);
+			int length = data == null ? udp.send(this, object, address) : udp.send(data, address);
+			if (length > 0)
+				stats.sentUdp(length);
+			else if (length == -1) stats.udpSendFailed();
 			if (length == 0) {
 				if (TRACE) trace("kryonet", this + " UDP had nothing to send.");
 			} else if (DEBUG) {
@@ -172,6 +227,14 @@ public class Connection {
 		return returnTripTime;
 	}
 
+	/**
+	 * Returns the traffic counters of this connection since it was created. TCP keep alives are sent as pings, so the return
+	 * trip histogram fills even if {@link #updateReturnTripTime()} is never called.
+	 */
+	public NetworkStats getStats () {
+		return stats;
+	}
+
 	/**
 	 * An empty object will be sent if the TCP connection has not sent an object within the specified milliseconds. Periodically
 	 * sending a keep alive ensures that an abnormal close is detected in a reasonable amount of time (see {@link #setTimeout(int)}
@@ -194,6 +257,34 @@ public class Connection {
 		tcp.timeoutMillis = timeoutMillis;
 	}
 
+	/**
+	 * Returns the number of bytes queued because the TCP socket was not writable. This method is thread safe.
+	 */
+	public int getTcpQueuedBytes () {
+		return tcp.queuedBytes;
+	}
+
+	/**
+	 * Sets the number of queued bytes at which {@link Listener#writeQueueHigh(Connection)} is called and at or below which
+	 * {@link Listener#writeQueueLow(Connection)} is called afterward. The high watermark also limits
+	 * {@link #sendLatestTCP(Object)}. Set the high watermark to zero to disable. Defaults to half and a quarter of the write buffer
+	 * size.
+	 */
+	public void setWriteWatermarks (int lowWatermark, int highWatermark) {
+		if (lowWatermark > highWatermark) throw new IllegalArgumentException("lowWatermark cannot be greater than highWatermark.");
+		tcp.lowWatermark = lowWatermark;
+		tcp.highWatermark = highWatermark;
+	}
+
+	/**
+	 * Sets the size of the largest object that can be sent or received over TCP. Objects larger than the object buffer size are
+	 * held in a temporary buffer while they are serialized or received, so the object buffer only needs to fit the common case.
+	 * A received object larger than this closes the connection, which protects against bogus lengths. Defaults to 1048576.
+	 */
+	public void setMaxObjectSize (int maxObjectSize) {
+		tcp.maxObjectSize = maxObjectSize;
+	}
+
 	/**
 	 * If the listener already exists, it is not added again.
 	 */
@@ -246,6 +337,20 @@ public class Connection {
 			listeners[i].connected(this);
 	}
 
+	void notifyWriteQueueHigh () {
+		if (DEBUG) debug("kryonet", this + " TCP write queue is high: " + tcp.queuedBytes);
+		Listener[] listeners = this.listeners;
+		for (int i = 0, n = listeners.length; i < n; i++)
+			listeners[i].writeQueueHigh(this);
+	}
+
+	void notifyWriteQueueLow () {
+		if (DEBUG) debug("kryonet", this + " TCP write queue is low: " + tcp.queuedBytes);
+		Listener[] listeners = this.listeners;
+		for (int i = 0, n = listeners.length; i < n; i++)
+			listeners[i].writeQueueLow(this);
+	}
+
 	void notifyDisconnected () {
 		Listener[] listeners = this.listeners;
 		for (int i = 0, n = listeners.length; i < n; i++)
@@ -258,6 +363,7 @@ public class Connection {
 			if (ping.isReply) {
 				if (ping.id == lastPingID - 1) {
 					returnTripTime = (int)(System.currentTimeMillis() - lastPingSendTime);
+					stats.returnTrip(returnTripTime);
 					if (TRACE) trace("kryonet", this + " return trip time: " + returnTripTime);
 				}
 			} else {
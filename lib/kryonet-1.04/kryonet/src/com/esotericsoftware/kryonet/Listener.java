@@ -5,10 +5,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.esotericsoftware.minlog.Log.*;
 
@@ -39,6 +42,22 @@ public class Listener {
 	public void received (Connection connection, Object object) {
 	}
 
+	/**
+	 * Called when the bytes queued for the TCP socket reach the high watermark because the remote end is not reading fast enough.
+	 * Sending less to the connection until {@link #writeQueueLow(Connection)} is called avoids overflowing the write buffer, which
+	 * would close the connection. There is no guarantee as to what thread will invoke this method.
+	 * @see Connection#setWriteWatermarks(int, int)
+	 */
+	public void writeQueueHigh (Connection connection) {
+	}
+
+	/**
+	 * Called when the bytes queued for the TCP socket have fallen to the low watermark after {@link #writeQueueHigh(Connection)}
+	 * was called. There is no guarantee as to what thread will invoke this method.
+	 */
+	public void writeQueueLow (Connection connection) {
+	}
+
 	/**
 	 * Uses reflection to called "received(Connection, XXX)" on the listener, where XXX is the received object type. Note this
 	 * class uses a HashMap lookup and (cached) reflection, so is not as efficient as writing a series of "instanceof" statements.
@@ -89,7 +108,7 @@ public class Listener {
 		}
 
 		public void connected (final Connection connection) {
-			queue(new Runnable() {
+			queue(connection, new Runnable() {
 				public void run () {
 					listener.connected(connection);
 				}
@@ -97,7 +116,7 @@ public class Listener {
 		}
 
 		public void disconnected (final Connection connection) {
-			queue(new Runnable() {
+			queue(connection, new Runnable() {
 				public void run () {
 					listener.disconnected(connection);
 				}
@@ -105,21 +124,52 @@ public class Listener {
 		}
 
 		public void received (final Connection connection, final Object object) {
-			queue(new Runnable() {
+			queue(connection, new Runnable() {
 				public void run () {
 					listener.received(connection, object);
 				}
 			});
 		}
 
+		public void writeQueueHigh (final Connection connection) {
+			queue(connection, new Runnable() {
+				public void run () {
+					listener.writeQueueHigh(connection);
+				}
+			});
+		}
+
+		public void writeQueueLow (final Connection connection) {
+			queue(connection, new Runnable() {
+				public void run () {
+					listener.writeQueueLow(connection);
+				}
+			});
+		}
+
+		/**
+		 * Queues a notification for the specified connection. By default this calls {@link #queue(Runnable)}.
+		 */
+		protected void queue (Connection connection, Runnable runnable) {
+			queue(runnable);
+		}
+
 		abstract protected void queue (Runnable runnable);
 	}
 
 	/**
-	 * Wraps a listener and processes notification events on a separate thread.
+	 * Wraps a listener and processes notification events on separate threads. The notifications for one connection are processed
+	 * in order and never concurrently, while the notifications for different connections are processed in parallel if the
+	 * thread pool has more than one thread. A connection with many pending notifications yields its thread after a batch, so it
+	 * cannot starve the others.
 	 */
 	static public class ThreadedListener extends QueuedListener {
+		static private final int batchSize = 32;
+
 		protected final ExecutorService threadPool;
+		private final ConcurrentHashMap<Connection, ConnectionQueue> queues = new ConcurrentHashMap();
+		private final AtomicInteger queueDepth = new AtomicInteger();
+		private final AtomicInteger maxQueueDepth = new AtomicInteger();
 
 		/**
 		 * Creates a single thread to process notification events.
@@ -128,6 +178,13 @@ public class Listener {
 			this(listener, Executors.newFixedThreadPool(1));
 		}
 
+		/**
+		 * Creates the specified number of threads to process notification events.
+		 */
+		public ThreadedListener (Listener listener, int threads) {
+			this(listener, Executors.newFixedThreadPool(threads));
+		}
+
 		/**
 		 * Uses the specified threadPool to process notification events.
 		 */
@@ -137,9 +194,84 @@ public class Listener {
 			this.threadPool = threadPool;
 		}
 
+		protected void queue (Connection connection, Runnable runnable) {
+			ConnectionQueue queue = queues.get(connection);
+			if (queue == null) {
+				queue = new ConnectionQueue(connection);
+				ConnectionQueue existing = queues.putIfAbsent(connection, queue);
+				if (existing != null) queue = existing;
+			}
+			int depth = queueDepth.incrementAndGet();
+			while (true) {
+				int max = maxQueueDepth.get();
+				if (depth <= max || maxQueueDepth.compareAndSet(max, depth)) break;
+			}
+			queue.add(runnable);
+		}
+
 		public void queue (Runnable runnable) {
 			threadPool.execute(runnable);
 		}
+
+		/**
+		 * Returns the number of notifications waiting to be processed for all connections. This method is thread safe.
+		 */
+		public int getQueueDepth () {
+			return queueDepth.get();
+		}
+
+		/**
+		 * Returns the number of notifications waiting to be processed for the connection. This method is thread safe.
+		 */
+		public int getQueueDepth (Connection connection) {
+			ConnectionQueue queue = queues.get(connection);
+			return queue == null ? 0 : queue.size.get();
+		}
+
+		/**
+		 * Returns the largest number of notifications that were waiting at once. This method is thread safe.
+		 */
+		public int getMaxQueueDepth () {
+			return maxQueueDepth.get();
+		}
+
+		/**
+		 * The pending notifications of one connection. At most one thread runs them at a time.
+		 */
+		private class ConnectionQueue implements Runnable {
+			final Connection connection;
+			final ConcurrentLinkedQueue<Runnable> runnables = new ConcurrentLinkedQueue();
+			final AtomicInteger size = new AtomicInteger();
+
+			ConnectionQueue (Connection connection) {
+				this.connection = connection;
+			}
+
+			void add (Runnable runnable) {
+				runnables.add(runnable);
+				// The thread that makes the queue non-empty schedules it.
+				if (size.getAndIncrement() == 0) threadPool.execute(this);
+			}
+
+			public void run () {
+				for (int i = 0; i < batchSize; i++) {
+					Runnable runnable = runnables.poll();
+					try {
+						runnable.run();
+					} catch (Throwable ex) {
+						if (ERROR) error("kryonet", "Error notifying listener.", ex);
+					}
+					queueDepth.decrementAndGet();
+					if (size.decrementAndGet() == 0) {
+						// Forget closed connections once all of their notifications have been processed.
+						if (!connection.isConnected()) queues.remove(connection, this);
+						return;
+					}
+				}
+				// Let the notifications of other connections run before continuing.
+				threadPool.execute(this);
+			}
+		}
 	}
 
 	/**
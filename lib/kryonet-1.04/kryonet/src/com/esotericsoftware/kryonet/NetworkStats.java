@@ -0,0 +1,173 @@
+package com.esotericsoftware.kryonet;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the traffic of a {@link Connection}, or the sum over all connections of a {@link Server}. Every update is also
+ * applied to the aggregate, if any. The counters are atomic, so they can be polled from any thread without locking, though
+ * values read one after another may be from slightly different moments.
+ */
+public class NetworkStats {
+	/**
+	 * The upper bounds in milliseconds of the buckets of {@link #getReturnTripHistogram()}. The last bucket holds all larger
+	 * times.
+	 */
+	static public final int[] RETURN_TRIP_BUCKETS = {10, 20, 50, 100, 200, 500, 1000, 2000, Integer.MAX_VALUE};
+
+	private final NetworkStats aggregate;
+	private final AtomicLong tcpBytesSent = new AtomicLong(), tcpObjectsSent = new AtomicLong();
+	private final AtomicLong tcpBytesReceived = new AtomicLong(), tcpObjectsReceived = new AtomicLong();
+	private final AtomicLong udpBytesSent = new AtomicLong(), udpObjectsSent = new AtomicLong();
+	private final AtomicLong udpBytesReceived = new AtomicLong(), udpObjectsReceived = new AtomicLong();
+	private final AtomicLong udpSendFailures = new AtomicLong();
+	private final AtomicLong serializationNanos = new AtomicLong(), deserializationNanos = new AtomicLong();
+	private final AtomicLong maxQueuedBytes = new AtomicLong();
+	private final AtomicIntegerArray returnTrips = new AtomicIntegerArray(RETURN_TRIP_BUCKETS.length);
+
+	/**
+	 * @param aggregate May be null.
+	 */
+	NetworkStats (NetworkStats aggregate) {
+		this.aggregate = aggregate;
+	}
+
+	void sentTcp (int bytes) {
+		tcpBytesSent.addAndGet(bytes);
+		tcpObjectsSent.incrementAndGet();
+		if (aggregate != null) aggregate.sentTcp(bytes);
+	}
+
+	void receivedTcp (int bytes) {
+		tcpBytesReceived.addAndGet(bytes);
+		tcpObjectsReceived.incrementAndGet();
+		if (aggregate != null) aggregate.receivedTcp(bytes);
+	}
+
+	void sentUdp (int bytes) {
+		udpBytesSent.addAndGet(bytes);
+		udpObjectsSent.incrementAndGet();
+		if (aggregate != null) aggregate.sentUdp(bytes);
+	}
+
+	void receivedUdp (int bytes) {
+		udpBytesReceived.addAndGet(bytes);
+		udpObjectsReceived.incrementAndGet();
+		if (aggregate != null) aggregate.receivedUdp(bytes);
+	}
+
+	void udpSendFailed () {
+		udpSendFailures.incrementAndGet();
+		if (aggregate != null) aggregate.udpSendFailed();
+	}
+
+	void serialized (long nanos) {
+		serializationNanos.addAndGet(nanos);
+		if (aggregate != null) aggregate.serialized(nanos);
+	}
+
+	void deserialized (long nanos) {
+		deserializationNanos.addAndGet(nanos);
+		if (aggregate != null) aggregate.deserialized(nanos);
+	}
+
+	void queued (int queuedBytes) {
+		while (true) {
+			long max = maxQueuedBytes.get();
+			if (queuedBytes <= max || maxQueuedBytes.compareAndSet(max, queuedBytes)) break;
+		}
+		if (aggregate != null) aggregate.queued(queuedBytes);
+	}
+
+	void returnTrip (int millis) {
+		int bucket = 0;
+		while (millis > RETURN_TRIP_BUCKETS[bucket])
+			bucket++;
+		returnTrips.incrementAndGet(bucket);
+		if (aggregate != null) aggregate.returnTrip(millis);
+	}
+
+	public long getTcpBytesSent () {
+		return tcpBytesSent.get();
+	}
+
+	public long getTcpObjectsSent () {
+		return tcpObjectsSent.get();
+	}
+
+	public long getTcpBytesReceived () {
+		return tcpBytesReceived.get();
+	}
+
+	public long getTcpObjectsReceived () {
+		return tcpObjectsReceived.get();
+	}
+
+	public long getUdpBytesSent () {
+		return udpBytesSent.get();
+	}
+
+	public long getUdpObjectsSent () {
+		return udpObjectsSent.get();
+	}
+
+	public long getUdpBytesReceived () {
+		return udpBytesReceived.get();
+	}
+
+	public long getUdpObjectsReceived () {
+		return udpObjectsReceived.get();
+	}
+
+	/**
+	 * Returns the number of UDP objects that could not be sent because the socket buffer was full.
+	 */
+	public long getUdpSendFailures () {
+		return udpSendFailures.get();
+	}
+
+	/**
+	 * Returns the total time spent serializing objects for sending.
+	 */
+	public long getSerializationNanos () {
+		return serializationNanos.get();
+	}
+
+	/**
+	 * Returns the total time spent deserializing received objects.
+	 */
+	public long getDeserializationNanos () {
+		return deserializationNanos.get();
+	}
+
+	/**
+	 * Returns the largest number of bytes that were queued at once because the TCP socket was not writable.
+	 */
+	public long getMaxQueuedBytes () {
+		return maxQueuedBytes.get();
+	}
+
+	/**
+	 * Returns the number of TCP return trip times measured by pings and keep alives for each bucket of
+	 * {@link #RETURN_TRIP_BUCKETS}.
+	 */
+	public int[] getReturnTripHistogram () {
+		int[] histogram = new int[RETURN_TRIP_BUCKETS.length];
+		for (int i = 0; i < histogram.length; i++)
+			histogram[i] = returnTrips.get(i);
+		return histogram;
+	}
+
+	public String toString () {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("TCP sent ").append(getTcpObjectsSent()).append('/').append(getTcpBytesSent());
+		buffer.append(", received ").append(getTcpObjectsReceived()).append('/').append(getTcpBytesReceived());
+		buffer.append(", UDP sent ").append(getUdpObjectsSent()).append('/').append(getUdpBytesSent());
+		buffer.append(", received ").append(getUdpObjectsReceived()).append('/').append(getUdpBytesReceived());
+		buffer.append(", UDP failures ").append(getUdpSendFailures());
+		buffer.append(", serialization ").append(getSerializationNanos() / 1000000).append("ms");
+		buffer.append(", deserialization ").append(getDeserializationNanos() / 1000000).append("ms");
+		buffer.append(", max queued ").append(getMaxQueuedBytes());
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,82 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.esotericsoftware.minlog.Log.*;
+
+/**
+ * One of the additional selectors of a {@link Server}. It owns the TCP channels of the connections assigned to it, so all reads,
+ * writes and listener notifications for those connections happen on its thread, in order.
+ */
+class SelectorThread implements Runnable {
+	final Selector selector;
+	private final Server server;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue();
+	private volatile boolean running;
+	private Thread thread;
+
+	public SelectorThread (Server server) {
+		this.server = server;
+		try {
+			selector = Selector.open();
+		} catch (IOException ex) {
+			throw new RuntimeException("Error opening selector.", ex);
+		}
+	}
+
+	/**
+	 * Runs the task on this selector's thread before the next select. This method is thread safe.
+	 */
+	public void execute (Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	public synchronized void start (String name) {
+		if (thread != null && thread.isAlive()) return;
+		running = true;
+		thread = new Thread(this, name);
+		thread.start();
+	}
+
+	public synchronized void stop () {
+		running = false;
+		selector.wakeup();
+	}
+
+	public void run () {
+		if (TRACE) trace("kryonet", "Selector thread started.");
+		while (running) {
+			try {
+				selector.select(500);
+			} catch (IOException ex) {
+				if (ERROR) error("kryonet", "Error selecting server connections.", ex);
+				continue;
+			}
+			Runnable task;
+			while ((task = tasks.poll()) != null)
+				task.run();
+
+			Set<SelectionKey> keys = selector.selectedKeys();
+			for (Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();) {
+				SelectionKey selectionKey = iter.next();
+				iter.remove();
+				try {
+					Connection connection = (Connection)selectionKey.attachment();
+					if (connection != null) server.processTcp(connection, selectionKey.readyOps());
+				} catch (CancelledKeyException ignored) {
+					// Connection is closed.
+				}
+			}
+			server.checkConnections(this, System.currentTimeMillis());
+		}
+		tasks.clear();
+		if (TRACE) trace("kryonet", "Selector thread stopped.");
+	}
+}
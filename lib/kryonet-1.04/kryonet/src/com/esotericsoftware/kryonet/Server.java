@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.SerializationException;
@@ -35,8 +36,12 @@ public class Server implements EndPoint {
 	private final Selector selector;
 	private ServerSocketChannel serverChannel;
 	private UdpConnection udp;
-	private Connection[] connections = {};
+	private volatile Connection[] connections = {};
 	private IntHashMap<Connection> pendingConnections = new IntHashMap();
+	private final Object connectionLock = new Object();
+	private ConcurrentHashMap<InetSocketAddress, Connection> udpConnections = new ConcurrentHashMap();
+	private final SelectorThread[] selectorThreads;
+	private int nextSelectorThread;
 	Listener[] listeners = {};
 	private Object listenerLock = new Object();
 	private int nextConnectionID = 1;
@@ -44,6 +49,10 @@ public class Server implements EndPoint {
 	private Object updateLock = new Object();
 	private Thread updateThread;
 	private ByteBuffer emptyBuffer = ByteBuffer.allocate(0);
+	private final BufferPool bufferPool;
+	private final NetworkStats stats = new NetworkStats(null);
+	private final ByteBuffer broadcastBuffer;
+	private final Object broadcastLock = new Object();
 
 	private Listener dispatchListener = new Listener() {
 		public void connected (Connection connection) {
@@ -64,6 +73,18 @@ public class Server implements EndPoint {
 			for (int i = 0, n = listeners.length; i < n; i++)
 				listeners[i].received(connection, object);
 		}
+
+		public void writeQueueHigh (Connection connection) {
+			Listener[] listeners = Server.this.listeners;
+			for (int i = 0, n = listeners.length; i < n; i++)
+				listeners[i].writeQueueHigh(connection);
+		}
+
+		public void writeQueueLow (Connection connection) {
+			Listener[] listeners = Server.this.listeners;
+			for (int i = 0, n = listeners.length; i < n; i++)
+				listeners[i].writeQueueLow(connection);
+		}
 	};
 
 	/**
@@ -74,28 +95,41 @@ public class Server implements EndPoint {
 	}
 
 	/**
-	 * @param writeBufferSize One buffer of this size is allocated for each connected client. Objects are serialized to the write
-	 *           buffer where the bytes are queued until they can be written to the socket.
+	 * @param writeBufferSize The maximum number of bytes queued for a connection until they can be written to the socket.
 	 *           <p>
 	 *           Normally the socket is writable and the bytes are written immediately. If the socket cannot be written to and
-	 *           enough serialized objects are queued to overflow the buffer, then the connection will be closed.
+	 *           enough serialized objects are queued to exceed this size, then the connection will be closed.
 	 *           <p>
 	 *           The write buffer should be sized at least as large as the largest object that will be sent, plus some head room to
 	 *           allow for some serialized objects to be queued in case the buffer is temporarily not writable. The amount of head
 	 *           room needed is dependent upon the size of objects being sent and how often they are sent.
-	 * @param objectBufferSize Two (using only TCP) or four (using both TCP and UDP) buffers of this size are allocated. These
-	 *           buffers are used to hold the bytes for a single object graph until it can be sent over the network or
-	 *           deserialized.
+	 * @param objectBufferSize The size of the buffers used to hold the bytes for a single object graph until it can be sent over
+	 *           the network or deserialized. TCP buffers are direct and pooled by the server; a connection only holds them while
+	 *           it has bytes queued for writing or a partially received object.
 	 *           <p>
-	 *           The object buffers should be sized at least as large as the largest object that will be sent or received.
+	 *           The object buffers should be sized for the objects that are commonly sent. Larger objects sent over TCP are held
+	 *           in a temporary buffer, up to {@link Connection#setMaxObjectSize(int)}. Objects sent over UDP must fit in the
+	 *           object buffer.
 	 */
 	public Server (int writeBufferSize, int objectBufferSize) {
 		this(writeBufferSize, objectBufferSize, new Kryo());
 	}
 
 	public Server (int writeBufferSize, int objectBufferSize, Kryo kryo) {
+		this(writeBufferSize, objectBufferSize, kryo, 0);
+	}
+
+	/**
+	 * @param selectorThreads If greater than zero, TCP connections are distributed round-robin over this many additional threads,
+	 *           each with its own selector. The server thread then only accepts connections and receives UDP datagrams, which
+	 *           are handed to the thread of the connection they belong to. All listener notifications for one connection happen
+	 *           on the same thread and in order, but different connections are notified concurrently.
+	 */
+	public Server (int writeBufferSize, int objectBufferSize, Kryo kryo, int selectorThreads) {
 		this.writeBufferSize = writeBufferSize;
 		this.objectBufferSize = objectBufferSize;
+		bufferPool = new BufferPool(objectBufferSize, 256);
+		broadcastBuffer = ByteBuffer.allocateDirect(objectBufferSize);
 
 		this.kryo = kryo;
 		kryo.register(RegisterTCP.class);
@@ -109,12 +143,24 @@ public class Server implements EndPoint {
 		} catch (IOException ex) {
 			throw new RuntimeException("Error opening selector.", ex);
 		}
+
+		this.selectorThreads = new SelectorThread[selectorThreads];
+		for (int i = 0; i < selectorThreads; i++)
+			this.selectorThreads[i] = new SelectorThread(this);
 	}
 
 	public Kryo getKryo () {
 		return kryo;
 	}
 
+	/**
+	 * Returns the sum of the traffic counters of all connections this server has had. This method is thread safe and does not
+	 * lock.
+	 */
+	public NetworkStats getStats () {
+		return stats;
+	}
+
 	/**
 	 * Opens a TCP only server.
 	 * @throws IOException if the server could not be opened.
@@ -148,6 +194,8 @@ public class Server implements EndPoint {
 				throw ex;
 			}
 		}
+		for (int i = 0; i < selectorThreads.length; i++)
+			selectorThreads[i].start("Server selector " + i);
 		if (INFO) info("kryonet", "Server opened.");
 	}
 
@@ -179,46 +227,7 @@ public class Server implements EndPoint {
 
 					if (fromConnection != null) {
 						// Must be a TCP read or write operation.
-						if (udp != null && fromConnection.udpRemoteAddress == null) continue;
-						if ((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ) {
-							try {
-								while (true) {
-									Object object = fromConnection.tcp.readObject(fromConnection);
-									if (object == null) break;
-									if (DEBUG) {
-										String objectString = object == null ? "null" : object.getClass().getSimpleName();
-										if (!(object instanceof FrameworkMessage)) {
-											debug("kryonet", fromConnection + " received TCP: " + objectString);
-										} else if (TRACE) {
-											trace("kryonet", fromConnection + " received TCP: " + objectString);
-										}
-									}
-									fromConnection.notifyReceived(object);
-								}
-							} catch (IOException ex) {
-								if (TRACE) {
-									trace("kryonet", "Unable to read TCP from: " + fromConnection, ex);
-								} else if (DEBUG) {
-									debug("kryonet", fromConnection + " update: " + ex.getMessage());
-								}
-								fromConnection.close();
-							} catch (SerializationException ex) {
-								if (ERROR) error("kryonet", "Error reading TCP from connection: " + fromConnection, ex);
-								fromConnection.close();
-							}
-						}
-						if ((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE) {
-							try {
-								fromConnection.tcp.writeOperation();
-							} catch (IOException ex) {
-								if (TRACE) {
-									trace("kryonet", "Unable to write TCP to connection: " + fromConnection, ex);
-								} else if (DEBUG) {
-									debug("kryonet", fromConnection + " update: " + ex.getMessage());
-								}
-								fromConnection.close();
-							}
-						}
+						processTcp(fromConnection, ops);
 						continue;
 					}
 
@@ -245,13 +254,10 @@ public class Server implements EndPoint {
 					}
 					if (fromAddress == null) continue;
 
-					Connection[] connections = this.connections;
-					for (int i = 0, n = connections.length; i < n; i++) {
-						Connection connection = connections[i];
-						if (fromAddress.equals(connection.udpRemoteAddress)) {
-							fromConnection = connection;
-							break;
-						}
+					fromConnection = udpConnections.get(fromAddress);
+					if (fromConnection != null && fromConnection.selectorThread != null) {
+						receiveUdp(fromConnection, udp.copyReadBuffer());
+						continue;
 					}
 
 					Object object;
@@ -271,16 +277,24 @@ public class Server implements EndPoint {
 						if (object instanceof RegisterUDP) {
 							// Store the fromAddress on the connection and reply over TCP with a RegisterUDP to indicate success.
 							int fromConnectionID = ((RegisterUDP)object).connectionID;
-							Connection connection = pendingConnections.remove(fromConnectionID);
+							Connection connection;
+							synchronized (connectionLock) {
+								connection = pendingConnections.remove(fromConnectionID);
+							}
 							if (connection != null) {
 								if (connection.udpRemoteAddress != null) continue outer;
-								connection.udpRemoteAddress = fromAddress;
-								addConnection(connection);
-								connection.sendTCP(new RegisterUDP());
-								if (DEBUG)
-									debug("kryonet", "Port " + udp.datagramChannel.socket().getLocalPort() + "/UDP connected to: "
-										+ fromAddress);
-								connection.notifyConnected();
+								if (connection.selectorThread == null)
+									registerUdp(connection, fromAddress);
+								else {
+									// Register on the connection's thread, so no TCP data is received before the connected notification.
+									final Connection registerConnection = connection;
+									final InetSocketAddress registerAddress = fromAddress;
+									connection.selectorThread.execute(new Runnable() {
+										public void run () {
+											registerUdp(registerConnection, registerAddress);
+										}
+									});
+								}
 								continue;
 							}
 							if (DEBUG)
@@ -315,15 +329,70 @@ public class Server implements EndPoint {
 				}
 			}
 		}
-		long time = System.currentTimeMillis();
+		checkConnections(null, System.currentTimeMillis());
+	}
+
+	/**
+	 * Reads or writes pending TCP data for a connection. Called by the thread whose selector the connection is registered with.
+	 */
+	void processTcp (Connection fromConnection, int ops) {
+		if (udp != null && fromConnection.udpRemoteAddress == null) return;
+		if ((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ) {
+			try {
+				while (true) {
+					Object object = fromConnection.tcp.readObject(fromConnection);
+					if (object == null) break;
+					if (DEBUG) {
+						String objectString = object == null ? "null" : object.getClass().getSimpleName();
+						if (!(object instanceof FrameworkMessage)) {
+							debug("kryonet", fromConnection + " received TCP: " + objectString);
+						} else if (TRACE) {
+							trace("kryonet", fromConnection + " received TCP: " + objectString);
+						}
+					}
+					fromConnection.notifyReceived(object);
+				}
+			} catch (IOException ex) {
+				if (TRACE) {
+					trace("kryonet", "Unable to read TCP from: " + fromConnection, ex);
+				} else if (DEBUG) {
+					debug("kryonet", fromConnection + " update: " + ex.getMessage());
+				}
+				fromConnection.close();
+			} catch (SerializationException ex) {
+				if (ERROR) error("kryonet", "Error reading TCP from connection: " + fromConnection, ex);
+				fromConnection.close();
+			}
+		}
+		if ((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE) {
+			try {
+				fromConnection.tcp.writeOperation(fromConnection);
+			} catch (IOException ex) {
+				if (TRACE) {
+					trace("kryonet", "Unable to write TCP to connection: " + fromConnection, ex);
+				} else if (DEBUG) {
+					debug("kryonet", fromConnection + " update: " + ex.getMessage());
+				}
+				fromConnection.close();
+			}
+		}
+	}
+
+	/**
+	 * Closes timed out connections and sends keep alives. Each selector thread checks only its own connections.
+	 * @param selectorThread May be null for the connections of the server thread.
+	 */
+	void checkConnections (SelectorThread selectorThread, long time) {
 		Connection[] connections = this.connections;
 		for (int i = 0, n = connections.length; i < n; i++) {
 			Connection connection = connections[i];
+			if (connection.selectorThread != selectorThread) continue;
 			if (connection.tcp.isTimedOut(time)) {
 				if (DEBUG) debug("kryonet", connection + " timed out.");
 				connection.close();
 			} else {
-				if (connection.tcp.needsKeepAlive(time)) connection.sendTCP(FrameworkMessage.keepAlive);
+				// A ping keeps the connection alive and measures the return trip time.
+				if (connection.tcp.needsKeepAlive(time)) connection.updateReturnTripTime();
 			}
 		}
 	}
@@ -351,28 +420,87 @@ public class Server implements EndPoint {
 		close();
 		if (TRACE) trace("kryonet", "Server thread stopping.");
 		shutdown = true;
+		for (int i = 0; i < selectorThreads.length; i++)
+			selectorThreads[i].stop();
+	}
+
+	private void registerUdp (Connection connection, InetSocketAddress fromAddress) {
+		connection.udpRemoteAddress = fromAddress;
+		addConnection(connection);
+		connection.sendTCP(new RegisterUDP());
+		if (DEBUG) debug("kryonet", "Port " + udp.datagramChannel.socket().getLocalPort() + "/UDP connected to: " + fromAddress);
+		connection.notifyConnected();
+	}
+
+	/**
+	 * Deserializes and dispatches a datagram on the thread of the connection it belongs to.
+	 */
+	private void receiveUdp (final Connection fromConnection, final ByteBuffer datagram) {
+		final UdpConnection udp = this.udp;
+		fromConnection.selectorThread.execute(new Runnable() {
+			public void run () {
+				Object object;
+				try {
+					object = udp.readObject(fromConnection, datagram);
+				} catch (SerializationException ex) {
+					if (ERROR) error("kryonet", "Error reading UDP from connection: " + fromConnection, ex);
+					return;
+				}
+				if (DEBUG) {
+					String objectString = object == null ? "null" : object.getClass().getSimpleName();
+					if (object instanceof FrameworkMessage) {
+						if (TRACE) trace("kryonet", fromConnection + " received UDP: " + objectString);
+					} else
+						debug("kryonet", fromConnection + " received UDP: " + objectString);
+				}
+				fromConnection.notifyReceived(object);
+			}
+		});
 	}
 
-	private void acceptOperation (SocketChannel socketChannel) {
+	private void acceptOperation (final SocketChannel socketChannel) {
+		if (selectorThreads.length == 0) {
+			acceptOperation(socketChannel, null);
+			return;
+		}
+		final SelectorThread selectorThread = selectorThreads[nextSelectorThread];
+		nextSelectorThread = (nextSelectorThread + 1) % selectorThreads.length;
+		// A channel can only be registered by the thread selecting on it, without blocking.
+		selectorThread.execute(new Runnable() {
+			public void run () {
+				acceptOperation(socketChannel, selectorThread);
+			}
+		});
+	}
+
+	private void acceptOperation (SocketChannel socketChannel, SelectorThread selectorThread) {
 		Connection connection = newConnection();
-		connection.initialize(kryo, writeBufferSize, objectBufferSize);
+		connection.initialize(kryo, writeBufferSize, bufferPool, stats);
 		connection.endPoint = this;
+		connection.selectorThread = selectorThread;
 		UdpConnection udp = this.udp;
 		if (udp != null) connection.udp = udp;
 		try {
+			Selector selector = selectorThread == null ? this.selector : selectorThread.selector;
 			SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
 			selectionKey.attach(connection);
 
-			int id = nextConnectionID++;
-			if (nextConnectionID == -1) nextConnectionID = 1;
+			int id;
+			synchronized (connectionLock) {
+				id = nextConnectionID++;
+				if (nextConnectionID == -1) nextConnectionID = 1;
+			}
 			connection.id = id;
 			connection.setConnected(true);
 			connection.addListener(dispatchListener);
 
 			if (udp == null)
 				addConnection(connection);
-			else
-				pendingConnections.put(id, connection);
+			else {
+				synchronized (connectionLock) {
+					pendingConnections.put(id, connection);
+				}
+			}
 
 			RegisterTCP registerConnection = new RegisterTCP();
 			registerConnection.connectionID = id;
@@ -394,35 +522,57 @@ public class Server implements EndPoint {
 	}
 
 	private void addConnection (Connection connection) {
-		Connection[] newConnections = new Connection[connections.length + 1];
-		newConnections[0] = connection;
-		System.arraycopy(connections, 0, newConnections, 1, connections.length);
-		connections = newConnections;
+		synchronized (connectionLock) {
+			Connection[] newConnections = new Connection[connections.length + 1];
+			newConnections[0] = connection;
+			System.arraycopy(connections, 0, newConnections, 1, connections.length);
+			connections = newConnections;
+		}
+		if (connection.udpRemoteAddress != null) udpConnections.put(connection.udpRemoteAddress, connection);
 	}
 
 	void removeConnection (Connection connection) {
-		ArrayList<Connection> temp = new ArrayList(Arrays.asList(connections));
-		temp.remove(connection);
-		connections = temp.toArray(new Connection[temp.size()]);
+		synchronized (connectionLock) {
+			ArrayList<Connection> temp = new ArrayList(Arrays.asList(connections));
+			temp.remove(connection);
+			connections = temp.toArray(new Connection[temp.size()]);
 
-		pendingConnections.remove(connection.id);
+			pendingConnections.remove(connection.id);
+		}
+		if (connection.udpRemoteAddress != null) udpConnections.remove(connection.udpRemoteAddress, connection);
 	}
 
-	// BOZO - Provide mechanism for sending to multiple clients without serializing multiple times.
-
+	/**
+	 * Sends the object to all connections using TCP. The object is serialized only once, so its serializers must not depend on
+	 * the connection it is sent to.
+	 */
 	public void sendToAllTCP (Object object) {
-		Connection[] connections = this.connections;
-		for (int i = 0, n = connections.length; i < n; i++) {
-			Connection connection = connections[i];
-			connection.sendTCP(object);
-		}
+		sendToAllExceptTCP(0, object);
 	}
 
+	/**
+	 * Sends the object to all connections but one using TCP. The object is serialized only once, so its serializers must not
+	 * depend on the connection it is sent to.
+	 */
 	public void sendToAllExceptTCP (int connectionID, Object object) {
+		if (object == null) throw new IllegalArgumentException("object cannot be null.");
 		Connection[] connections = this.connections;
-		for (int i = 0, n = connections.length; i < n; i++) {
-			Connection connection = connections[i];
-			if (connection.id != connectionID) connection.sendTCP(object);
+		synchronized (broadcastLock) {
+			if (!serializeBroadcast(object)) {
+				// Send individually so each connection handles the failure as it would for sendTCP.
+				for (int i = 0, n = connections.length; i < n; i++) {
+					Connection connection = connections[i];
+					if (connection.id != connectionID) connection.sendTCP(object);
+				}
+				return;
+			}
+			int start = broadcastBuffer.position();
+			for (int i = 0, n = connections.length; i < n; i++) {
+				Connection connection = connections[i];
+				if (connection.id == connectionID) continue;
+				broadcastBuffer.position(start);
+				connection.sendTCP(object, broadcastBuffer);
+			}
 		}
 	}
 
@@ -437,19 +587,51 @@ public class Server implements EndPoint {
 		}
 	}
 
+	/**
+	 * Sends the object to all connections using UDP. The object is serialized only once, so its serializers must not depend on
+	 * the connection it is sent to.
+	 */
 	public void sendToAllUDP (Object object) {
-		Connection[] connections = this.connections;
-		for (int i = 0, n = connections.length; i < n; i++) {
-			Connection connection = connections[i];
-			connection.sendUDP(object);
-		}
+		sendToAllExceptUDP(0, object);
 	}
 
+	/**
+	 * Sends the object to all connections but one using UDP. The object is serialized only once, so its serializers must not
+	 * depend on the connection it is sent to.
+	 */
 	public void sendToAllExceptUDP (int connectionID, Object object) {
+		if (object == null) throw new IllegalArgumentException("object cannot be null.");
 		Connection[] connections = this.connections;
-		for (int i = 0, n = connections.length; i < n; i++) {
-			Connection connection = connections[i];
-			if (connection.id != connectionID) connection.sendUDP(object);
+		synchronized (broadcastLock) {
+			if (!serializeBroadcast(object)) {
+				for (int i = 0, n = connections.length; i < n; i++) {
+					Connection connection = connections[i];
+					if (connection.id != connectionID) connection.sendUDP(object);
+				}
+				return;
+			}
+			for (int i = 0, n = connections.length; i < n; i++) {
+				Connection connection = connections[i];
+				if (connection.id == connectionID) continue;
+				// A datagram has no length in front of the data.
+				broadcastBuffer.position(5);
+				connection.sendUDP(object, broadcastBuffer);
+			}
+		}
+	}
+
+	/**
+	 * Serializes the object into the broadcast buffer, framed for TCP. Must be called while holding the broadcast lock.
+	 * @return false if the object could not be serialized.
+	 */
+	private boolean serializeBroadcast (Object object) {
+		try {
+			long start = System.nanoTime();
+			TcpConnection.serialize(kryo, null, object, broadcastBuffer);
+			stats.serialized(System.nanoTime() - start);
+			return true;
+		} catch (SerializationException ex) {
+			return false;
 		}
 	}
 
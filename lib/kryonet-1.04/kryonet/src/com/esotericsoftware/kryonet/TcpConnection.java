@@ -26,23 +26,42 @@ class TcpConnection {
 
 	SocketChannel socketChannel;
 	int keepAliveMillis = 8000;
-	final ByteBuffer readBuffer, writeBuffer, tempWriteBuffer;
+	final int writeBufferSize, objectBufferSize;
 	boolean bufferPositionFix;
 	int timeoutMillis = 12000;
+	int maxObjectSize = 1024 * 1024;
+	int lowWatermark, highWatermark;
 
 	private final Kryo kryo;
+	private final BufferPool bufferPool;
+	private final NetworkStats stats;
 	private SelectionKey selectionKey;
 	private final Object writeLock = new Object();
+	// Buffers leased from the pool, in flip mode. Written with a single gathering write.
+	private ByteBuffer[] writeQueue = new ByteBuffer[2];
+	private int writeQueueSize;
+	volatile int queuedBytes;
+	private boolean aboveHighWatermark;
+	// The queued buffer holding the last object sent with sendLatest, while none of its bytes have been written.
+	private ByteBuffer latestBuffer;
+	private int latestStart;
+	private ByteBuffer readBuffer;
 	private int currentObjectLength;
 	private long lastWriteTime;
 	private long lastReadTime;
 
-	public TcpConnection (Kryo kryo, int writeBufferSize, int objectBufferSize) {
+	/**
+	 * @param writeBufferSize The maximum number of bytes queued while the socket is not writable.
+	 * @param bufferPool Provides the buffers for reading and writing, sized to hold the largest object.
+	 */
+	public TcpConnection (Kryo kryo, int writeBufferSize, BufferPool bufferPool, NetworkStats stats) {
 		this.kryo = kryo;
-		writeBuffer = ByteBuffer.allocate(writeBufferSize);
-		tempWriteBuffer = ByteBuffer.allocate(objectBufferSize);
-		readBuffer = ByteBuffer.allocate(objectBufferSize);
-		readBuffer.flip();
+		this.stats = stats;
+		this.writeBufferSize = writeBufferSize;
+		this.bufferPool = bufferPool;
+		objectBufferSize = bufferPool.bufferSize;
+		highWatermark = writeBufferSize / 2;
+		lowWatermark = writeBufferSize / 4;
 	}
 
 	public SelectionKey accept (Selector selector, SocketChannel socketChannel) throws IOException {
@@ -70,9 +89,11 @@ class TcpConnection {
 
 	public void connect (Selector selector, SocketAddress remoteAddress, int timeout) throws IOException {
 		close();
-		writeBuffer.clear();
-		readBuffer.clear();
-		readBuffer.flip();
+		if (readBuffer != null) {
+			bufferPool.free(readBuffer);
+			readBuffer = null;
+		}
+		currentObjectLength = 0;
 		try {
 			SocketChannel socketChannel = selector.provider().openSocketChannel();
 			Socket socket = socketChannel.socket();
@@ -103,6 +124,11 @@ class TcpConnection {
 		SocketChannel socketChannel = this.socketChannel;
 		if (socketChannel == null) throw new SocketException("Connection is closed.");
 
+		if (readBuffer == null) {
+			readBuffer = bufferPool.obtain();
+			readBuffer.flip();
+		}
+
 		if (currentObjectLength == 0) {
 			// Read the length of the next object from the socket.
 			if (!IntSerializer.canRead(readBuffer, true)) {
@@ -112,13 +138,24 @@ class TcpConnection {
 				if (bytesRead == -1) throw new SocketException("Connection is closed.");
 				lastReadTime = System.currentTimeMillis();
 
-				if (!IntSerializer.canRead(readBuffer, true)) return null;
+				if (!IntSerializer.canRead(readBuffer, true)) {
+					releaseReadBuffer();
+					return null;
+				}
 			}
 			currentObjectLength = IntSerializer.get(readBuffer, true);
 
 			if (currentObjectLength <= 0) throw new SerializationException("Invalid object length: " + currentObjectLength);
-			if (currentObjectLength > readBuffer.capacity())
-				throw new SerializationException("Unable to read object larger than read buffer: " + currentObjectLength);
+			if (currentObjectLength > maxObjectSize)
+				throw new SerializationException("Unable to read object larger than the maximum object size: " + currentObjectLength);
+			if (currentObjectLength > readBuffer.capacity()) {
+				// Hold this object in a temporary buffer of its size. Any bytes already read belong to it.
+				ByteBuffer buffer = bufferPool.obtain(currentObjectLength);
+				buffer.put(readBuffer);
+				buffer.flip();
+				bufferPool.free(readBuffer);
+				readBuffer = buffer;
+			}
 		}
 
 		int length = currentObjectLength;
@@ -130,7 +167,10 @@ class TcpConnection {
 			if (bytesRead == -1) throw new SocketException("Connection is closed.");
 			lastReadTime = System.currentTimeMillis();
 
-			if (readBuffer.remaining() < length) return null;
+			if (readBuffer.remaining() < length) {
+				releaseReadBuffer();
+				return null;
+			}
 		}
 		currentObjectLength = 0;
 
@@ -141,25 +181,78 @@ class TcpConnection {
 		Context context = Kryo.getContext();
 		context.put("connection", connection);
 		context.setRemoteEntityID(connection.id);
+		long start = System.nanoTime();
 		Object object = kryo.readClassAndObject(readBuffer);
+		stats.deserialized(System.nanoTime() - start);
+		stats.receivedTcp(IntSerializer.length(length, true) + length);
 
 		readBuffer.limit(oldLimit);
 		if (readBuffer.position() - startPosition != length)
 			throw new SerializationException("Incorrect number of bytes (" + (startPosition + length - readBuffer.position())
 				+ " remaining) used to deserialize object: " + object);
 
+		releaseReadBuffer();
 		return object;
 	}
 
-	public void writeOperation () throws IOException {
+	/**
+	 * Returns the read buffer to the pool if it holds no bytes of the next object. While the length of an object has been read but none of its
+	 * bytes, the buffer is kept, since it may be sized for that object.
+	 */
+	private void releaseReadBuffer () {
+		if (readBuffer.hasRemaining() || currentObjectLength > 0) return;
+		bufferPool.free(readBuffer);
+		readBuffer = null;
+	}
+
+	public void writeOperation (Connection connection) throws IOException {
+		int watermark;
 		synchronized (writeLock) {
-			writeBuffer.flip();
-			if (writeToSocket(writeBuffer)) {
+			if (writeQueue()) {
 				// Write successful, clear OP_WRITE.
 				selectionKey.interestOps(SelectionKey.OP_READ);
 			}
-			writeBuffer.compact();
+			watermark = checkWatermarks();
+		}
+		notifyWatermark(connection, watermark);
+	}
+
+	/**
+	 * Writes as much of the queued data as the socket accepts, using one gathering write for all queued buffers. Buffers that
+	 * were written completely are returned to the pool.
+	 * @return true if the queue is empty.
+	 */
+	private boolean writeQueue () throws IOException {
+		SocketChannel socketChannel = this.socketChannel;
+		if (socketChannel == null) throw new SocketException("Connection is closed.");
+
+		ByteBuffer[] writeQueue = this.writeQueue;
+		while (writeQueueSize > 0) {
+			long bytesWritten;
+			if (bufferPositionFix) {
+				int remaining = writeQueue[0].remaining();
+				writeToSocket(writeQueue[0]);
+				bytesWritten = remaining - writeQueue[0].remaining();
+			} else
+				bytesWritten = socketChannel.write(writeQueue, 0, writeQueueSize);
+			queuedBytes -= bytesWritten;
+			// Once writing has started, the latest object can no longer be removed.
+			if (latestBuffer != null && latestBuffer.position() != latestStart) latestBuffer = null;
+
+			int written = 0;
+			while (written < writeQueueSize && !writeQueue[written].hasRemaining())
+				bufferPool.free(writeQueue[written++]);
+			if (written > 0) {
+				System.arraycopy(writeQueue, written, writeQueue, 0, writeQueueSize - written);
+				for (int i = writeQueueSize - written; i < writeQueueSize; i++)
+					writeQueue[i] = null;
+				writeQueueSize -= written;
+			}
+			if (bytesWritten == 0) break;
 		}
+
+		lastWriteTime = System.currentTimeMillis();
+		return writeQueueSize == 0;
 	}
 
 	private boolean writeToSocket (ByteBuffer buffer) throws IOException {
@@ -184,46 +277,132 @@ class TcpConnection {
 	public int send (Connection connection, Object object) throws IOException {
 		SocketChannel socketChannel = this.socketChannel;
 		if (socketChannel == null) throw new SocketException("Connection is closed.");
+		int length, watermark;
+		synchronized (writeLock) {
+			length = send(connection, object, serialize(connection, object), true, false);
+			watermark = checkWatermarks();
+		}
+		notifyWatermark(connection, watermark);
+		return length;
+	}
+
+	/**
+	 * Sends an object that supersedes the previous object sent with this method. If none of the previous object's bytes have been
+	 * written yet, it is removed from the queue. If nothing was removed and the queue is at the high watermark, or if the object
+	 * would overflow the write buffer, the object is dropped instead. This method is thread safe.
+	 * @return The number of bytes sent or queued, or -1 if the object was dropped.
+	 */
+	public int sendLatest (Connection connection, Object object) throws IOException {
+		SocketChannel socketChannel = this.socketChannel;
+		if (socketChannel == null) throw new SocketException("Connection is closed.");
+		int length, watermark;
 		synchronized (writeLock) {
-			tempWriteBuffer.clear();
-			tempWriteBuffer.position(5); // Allow room for the data length.
+			boolean replaced = removeLatest();
+			if (!replaced && highWatermark > 0 && queuedBytes >= highWatermark)
+				length = -1;
+			else {
+				ByteBuffer buffer = serialize(connection, object);
+				if (writeQueueSize > 0 && queuedBytes + buffer.remaining() > writeBufferSize) {
+					bufferPool.free(buffer);
+					length = -1;
+				} else
+					length = send(connection, object, buffer, true, true);
+			}
+			watermark = checkWatermarks();
+		}
+		notifyWatermark(connection, watermark);
+		return length;
+	}
 
-			// Write data.
-			Context context = Kryo.getContext();
-			context.put("connection", connection);
-			context.setRemoteEntityID(connection.id);
+	/**
+	 * Serializes the object into a leased buffer, growing it as needed up to the maximum object size.
+	 */
+	private ByteBuffer serialize (Connection connection, Object object) {
+		ByteBuffer buffer = bufferPool.obtain();
+		while (true) {
 			try {
-				kryo.writeClassAndObject(tempWriteBuffer, object);
+				long start = System.nanoTime();
+				serialize(kryo, connection, object, buffer);
+				stats.serialized(System.nanoTime() - start);
+				return buffer;
 			} catch (SerializationException ex) {
-				throw new SerializationException("Unable to serialize object of type: " + object.getClass().getName(), ex);
+				bufferPool.free(buffer);
+				if (!ex.causedBy(BufferOverflowException.class) || buffer.capacity() >= maxObjectSize + 5) throw ex;
+				// Retry with a larger temporary buffer, up to the maximum object size plus room for the length.
+				buffer = bufferPool.obtain(Math.min(buffer.capacity() * 2, maxObjectSize + 5));
 			}
-			tempWriteBuffer.flip();
+		}
+	}
+
+	/**
+	 * Removes the object queued by {@link #sendLatest(Connection, Object)}, if none of it has been written. Must be called while
+	 * holding the write lock.
+	 * @return true if an object was removed.
+	 */
+	private boolean removeLatest () {
+		if (latestBuffer == null) return false;
+		boolean removed = false;
+		for (int i = 0; i < writeQueueSize; i++) {
+			if (writeQueue[i] != latestBuffer) continue;
+			queuedBytes -= latestBuffer.remaining();
+			System.arraycopy(writeQueue, i + 1, writeQueue, i, writeQueueSize - i - 1);
+			writeQueue[--writeQueueSize] = null;
+			bufferPool.free(latestBuffer);
+			removed = true;
+			break;
+		}
+		latestBuffer = null;
+		return removed;
+	}
 
-			// Write data length.
-			int dataLength = tempWriteBuffer.limit() - 5;
-			int lengthLength = IntSerializer.length(dataLength, true);
-			int start = 5 - lengthLength;
-			tempWriteBuffer.position(start);
-			IntSerializer.put(tempWriteBuffer, dataLength, true);
-			tempWriteBuffer.position(start);
+	/**
+	 * Writes an object that has already been serialized by {@link #serialize(Kryo, Connection, Object, ByteBuffer)}, from the
+	 * buffer's position to its limit. The buffer's position is advanced. This method is thread safe.
+	 * @param object Only used for error messages.
+	 */
+	public int send (Connection connection, Object object, ByteBuffer framed) throws IOException {
+		SocketChannel socketChannel = this.socketChannel;
+		if (socketChannel == null) throw new SocketException("Connection is closed.");
+		int length, watermark;
+		synchronized (writeLock) {
+			if (bufferPositionFix) {
+				// The fix moves the bytes within the buffer, which may be shared.
+				ByteBuffer copy = bufferPool.obtain(framed.remaining());
+				copy.put(framed);
+				copy.flip();
+				length = send(connection, object, copy, true, false);
+			} else
+				length = send(connection, object, framed, false, false);
+			watermark = checkWatermarks();
+		}
+		notifyWatermark(connection, watermark);
+		return length;
+	}
 
-			try {
-				if (writeBuffer.position() > 0) {
-					// Other data is already queued, append this data to be written later.
-					writeBuffer.put(tempWriteBuffer);
-				} else if (!writeToSocket(tempWriteBuffer)) {
-					// A partial write occurred, queue the remaining data to be written later.
-					writeBuffer.put(tempWriteBuffer);
-					// Set OP_WRITE to be notified when more writing can occur.
-					selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-				}
-			} catch (BufferOverflowException ex) {
-				throw new SerializationException(
-					"Write buffer limit exceeded writing object of type: " + object.getClass().getName(), ex);
+	/**
+	 * @param leased If true, the buffer was obtained from the pool for this object and is either queued or returned to the pool.
+	 *           Otherwise the bytes that cannot be written immediately are copied.
+	 * @param latest If true, the object may be removed from the queue by the next call to
+	 *           {@link #sendLatest(Connection, Object)}.
+	 */
+	private int send (Connection connection, Object object, ByteBuffer framed, boolean leased, boolean latest)
+		throws IOException {
+		synchronized (writeLock) {
+			int length = framed.remaining();
+			if (writeQueueSize > 0) {
+				// Other data is already queued, append this data to be written later.
+				queue(framed, leased, latest, object);
+			} else if (!writeToSocket(framed)) {
+				// A partial write occurred, queue the remaining data to be written later.
+				queue(framed, leased, false, object);
+				// Set OP_WRITE to be notified when more writing can occur.
+				selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			} else if (leased) {
+				bufferPool.free(framed);
 			}
 
 			if (DEBUG || TRACE) {
-				float percentage = writeBuffer.position() / (float)writeBuffer.capacity();
+				float percentage = queuedBytes / (float)writeBufferSize;
 				if (DEBUG && percentage > 0.75f)
 					debug("kryonet", connection + " TCP write buffer is approaching capacity: " + percentage + "%");
 				else if (TRACE && percentage > 0.25f)
@@ -232,8 +411,103 @@ class TcpConnection {
 
 			lastWriteTime = System.currentTimeMillis();
 
-			return tempWriteBuffer.limit() - start;
+			return length;
+		}
+	}
+
+	private void queue (ByteBuffer buffer, boolean leased, boolean latest, Object object) {
+		int length = buffer.remaining();
+		if (queuedBytes + length > writeBufferSize) {
+			if (leased) bufferPool.free(buffer);
+			SerializationException ex = new SerializationException("Write buffer limit exceeded writing object of type: "
+				+ object.getClass().getName());
+			ex.initCause(new BufferOverflowException());
+			throw ex;
+		}
+		queuedBytes += length;
+		stats.queued(queuedBytes);
+
+		// Small objects are appended to the last queued buffer rather than holding a buffer each. An object that may be removed
+		// keeps its buffer to itself.
+		ByteBuffer last = writeQueueSize > 0 ? writeQueue[writeQueueSize - 1] : null;
+		if (last != null && !latest && last != latestBuffer && last.capacity() - last.limit() >= length) {
+			int position = last.position();
+			last.position(last.limit());
+			last.limit(last.capacity());
+			last.put(buffer);
+			last.flip();
+			last.position(position);
+			if (leased) bufferPool.free(buffer);
+			return;
+		}
+		if (!leased) {
+			ByteBuffer copy = bufferPool.obtain(length);
+			copy.put(buffer);
+			copy.flip();
+			buffer = copy;
+		}
+		if (writeQueueSize == writeQueue.length) {
+			ByteBuffer[] newQueue = new ByteBuffer[writeQueueSize * 2];
+			System.arraycopy(writeQueue, 0, newQueue, 0, writeQueueSize);
+			writeQueue = newQueue;
+		}
+		writeQueue[writeQueueSize++] = buffer;
+		if (latest) {
+			latestBuffer = buffer;
+			latestStart = buffer.position();
+		}
+	}
+
+	/**
+	 * Must be called while holding the write lock.
+	 * @return 1 if the queue rose to the high watermark, -1 if it fell to the low watermark, otherwise 0.
+	 */
+	private int checkWatermarks () {
+		if (highWatermark <= 0) return 0;
+		if (!aboveHighWatermark && queuedBytes >= highWatermark) {
+			aboveHighWatermark = true;
+			return 1;
+		}
+		if (aboveHighWatermark && queuedBytes <= lowWatermark) {
+			aboveHighWatermark = false;
+			return -1;
+		}
+		return 0;
+	}
+
+	private void notifyWatermark (Connection connection, int watermark) {
+		if (watermark == 1)
+			connection.notifyWriteQueueHigh();
+		else if (watermark == -1) connection.notifyWriteQueueLow();
+	}
+
+	/**
+	 * Serializes the object into the buffer, preceded by its length. The data always starts at position 5. Afterward the buffer's
+	 * position is at the length and its limit is after the data.
+	 * @param connection May be null if the bytes are sent to multiple connections.
+	 */
+	static void serialize (Kryo kryo, Connection connection, Object object, ByteBuffer buffer) {
+		buffer.clear();
+		buffer.position(5); // Allow room for the data length.
+
+		// Write data.
+		Context context = Kryo.getContext();
+		context.put("connection", connection);
+		if (connection != null) context.setRemoteEntityID(connection.id);
+		try {
+			kryo.writeClassAndObject(buffer, object);
+		} catch (SerializationException ex) {
+			throw new SerializationException("Unable to serialize object of type: " + object.getClass().getName(), ex);
 		}
+		buffer.flip();
+
+		// Write data length.
+		int dataLength = buffer.limit() - 5;
+		int lengthLength = IntSerializer.length(dataLength, true);
+		int start = 5 - lengthLength;
+		buffer.position(start);
+		IntSerializer.put(buffer, dataLength, true);
+		buffer.position(start);
 	}
 
 	public void close () {
@@ -246,6 +520,16 @@ class TcpConnection {
 		} catch (IOException ex) {
 			if (DEBUG) debug("kryonet", "Unable to close TCP connection.", ex);
 		}
+		synchronized (writeLock) {
+			for (int i = 0; i < writeQueueSize; i++) {
+				bufferPool.free(writeQueue[i]);
+				writeQueue[i] = null;
+			}
+			writeQueueSize = 0;
+			queuedBytes = 0;
+			aboveHighWatermark = false;
+			latestBuffer = null;
+		}
 	}
 
 	public boolean needsKeepAlive (long time) {
@@ -81,19 +81,44 @@ class UdpConnection {
 	public Object readObject (Connection connection) {
 		readBuffer.flip();
 		try {
-			Context context = Kryo.getContext();
-			context.put("connection", connection);
-			if (connection != null) context.setRemoteEntityID(connection.id);
-			Object object = kryo.readClassAndObject(readBuffer);
-			if (readBuffer.hasRemaining())
-				throw new SerializationException("Incorrect number of bytes (" + readBuffer.remaining()
-					+ " remaining) used to deserialize object: " + object);
-			return object;
+			return readObject(connection, readBuffer);
 		} finally {
 			readBuffer.clear();
 		}
 	}
 
+	/**
+	 * Deserializes a datagram previously copied with {@link #copyReadBuffer()}. This method is thread safe.
+	 */
+	public Object readObject (Connection connection, ByteBuffer buffer) {
+		Context context = Kryo.getContext();
+		context.put("connection", connection);
+		if (connection != null) context.setRemoteEntityID(connection.id);
+		int length = buffer.remaining();
+		long start = System.nanoTime();
+		Object object = kryo.readClassAndObject(buffer);
+		if (connection != null) {
+			connection.stats.deserialized(System.nanoTime() - start);
+			connection.stats.receivedUdp(length);
+		}
+		if (buffer.hasRemaining())
+			throw new SerializationException("Incorrect number of bytes (" + buffer.remaining()
+				+ " remaining) used to deserialize object: " + object);
+		return object;
+	}
+
+	/**
+	 * Returns a copy of the datagram last received by {@link #readFromAddress()}, so it can be deserialized on another thread.
+	 */
+	public ByteBuffer copyReadBuffer () {
+		readBuffer.flip();
+		ByteBuffer copy = ByteBuffer.allocate(readBuffer.remaining());
+		copy.put(readBuffer);
+		copy.flip();
+		readBuffer.clear();
+		return copy;
+	}
+
 	/**
 	 * This method is thread safe.
 	 */
@@ -105,7 +130,9 @@ class UdpConnection {
 				Context context = Kryo.getContext();
 				context.put("connection", connection);
 				context.setRemoteEntityID(connection.id);
+				long start = System.nanoTime();
 				kryo.writeClassAndObject(writeBuffer, object);
+				connection.stats.serialized(System.nanoTime() - start);
 				writeBuffer.flip();
 				int length = writeBuffer.limit();
 				datagramChannel.send(writeBuffer, address);
@@ -120,6 +147,23 @@ class UdpConnection {
 		}
 	}
 
+	/**
+	 * Sends bytes that have already been serialized, from the buffer's position to its limit. This method is thread safe.
+	 */
+	public int send (ByteBuffer data, SocketAddress address) throws IOException {
+		DatagramChannel datagramChannel = this.datagramChannel;
+		if (datagramChannel == null) throw new SocketException("Connection is closed.");
+		synchronized (writeLock) {
+			int length = data.remaining();
+			datagramChannel.send(data, address);
+
+			lastCommunicationTime = System.currentTimeMillis();
+
+			boolean wasFullWrite = !data.hasRemaining();
+			return wasFullWrite ? length : -1;
+		}
+	}
+
 	public void close () {
 		connectedAddress = null;
 		try {
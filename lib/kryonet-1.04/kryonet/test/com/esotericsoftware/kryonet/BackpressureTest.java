@@ -0,0 +1,116 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+
+public class BackpressureTest extends KryoNetTestCase {
+	public void testWatermarksAndLatest () throws Exception {
+		final AtomicInteger high = new AtomicInteger();
+		final AtomicInteger low = new AtomicInteger();
+		final int[] results = new int[4];
+		final CountDownLatch drain = new CountDownLatch(1);
+
+		final Server server = new Server(1024 * 1024, 2048);
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort);
+		server.addListener(new Listener() {
+			public void connected (Connection connection) {
+				connection.setWriteWatermarks(10000, 20000);
+				if (connection.getID() == 2) {
+					// No latest object is queued, so above the high watermark a new one is dropped.
+					fill(connection);
+					results[3] = connection.sendLatestTCP(new Message(500));
+					drain.countDown();
+					return;
+				}
+				// Fill the socket until objects are queued.
+				for (int i = 0; i < 100000 && connection.getTcpQueuedBytes() == 0; i++)
+					connection.sendTCP(new Message(1000));
+				results[0] = connection.sendLatestTCP(new Message(500));
+				int queued = connection.getTcpQueuedBytes();
+				connection.sendLatestTCP(new Message(500));
+				// The second object replaced the first.
+				results[1] = connection.getTcpQueuedBytes() - queued;
+
+				fill(connection);
+				// Above the high watermark, but the queued latest object is still replaced.
+				results[2] = connection.sendLatestTCP(new Message(500));
+			}
+
+			public void writeQueueHigh (Connection connection) {
+				high.incrementAndGet();
+			}
+
+			public void writeQueueLow (Connection connection) {
+				low.incrementAndGet();
+				stopEndPoints();
+			}
+
+			private void fill (Connection connection) {
+				int count = high.get();
+				for (int i = 0; i < 100000 && high.get() == count; i++)
+					connection.sendTCP(new Message(1000));
+			}
+		});
+
+		// ----
+
+		// Raw sockets that do not read, so the server's writes back up. The first is drained at the end.
+		final Socket socket = connect();
+		Socket blockedSocket = connect();
+		Thread reader = new Thread() {
+			public void run () {
+				try {
+					drain.await();
+					InputStream input = socket.getInputStream();
+					byte[] bytes = new byte[4096];
+					while (input.read(bytes) != -1) {
+					}
+				} catch (Exception ignored) {
+				}
+			}
+		};
+		reader.start();
+
+		waitForThreads();
+		socket.close();
+		blockedSocket.close();
+
+		assertTrue(results[0] > 0);
+		assertEquals(0, results[1]);
+		assertTrue(results[2] > 0);
+		assertEquals(-1, results[3]);
+		assertEquals(2, high.get());
+		assertTrue(low.get() >= 1);
+	}
+
+	private Socket connect () throws IOException {
+		Socket socket = new Socket();
+		socket.setReceiveBufferSize(4096);
+		socket.connect(new InetSocketAddress(host, tcpPort), 5000);
+		return socket;
+	}
+
+	private void register (Kryo kryo) {
+		kryo.register(byte[].class);
+		kryo.register(Message.class);
+	}
+
+	static public class Message {
+		public byte[] bytes;
+
+		public Message () {
+		}
+
+		public Message (int size) {
+			bytes = new byte[size];
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+import com.esotericsoftware.kryo.serialize.SimpleSerializer;
+
+public class BroadcastTest extends KryoNetTestCase {
+	static final int clients = 4;
+
+	public void testBroadcast () throws IOException {
+		final AtomicInteger writes = new AtomicInteger();
+		final AtomicInteger tcpReceived = new AtomicInteger();
+		final AtomicInteger udpReceived = new AtomicInteger();
+		final AtomicInteger connected = new AtomicInteger();
+
+		final Server server = new Server();
+		register(server.getKryo(), writes);
+		startEndPoint(server);
+		server.bind(tcpPort, udpPort);
+		server.addListener(new Listener() {
+			public void connected (Connection connection) {
+				if (connected.incrementAndGet() != clients) return;
+				Message message = new Message();
+				message.value = 1234;
+				server.sendToAllTCP(message);
+				message.value = 5678;
+				server.sendToAllUDP(message);
+				message.value = -1;
+				server.sendToAllExceptTCP(connection.getID(), message);
+			}
+		});
+
+		// ----
+
+		for (int i = 0; i < clients; i++) {
+			Client client = new Client();
+			register(client.getKryo(), new AtomicInteger());
+			startEndPoint(client);
+			client.addListener(new Listener() {
+				public void received (Connection connection, Object object) {
+					if (!(object instanceof Message)) return;
+					int value = ((Message)object).value;
+					if (value == 1234) tcpReceived.incrementAndGet();
+					if (value == 5678) udpReceived.incrementAndGet();
+					if (value == -1) tcpReceived.incrementAndGet();
+					if (tcpReceived.get() == clients * 2 - 1 && udpReceived.get() == clients) stopEndPoints();
+				}
+			});
+			client.connect(5000, host, tcpPort, udpPort);
+		}
+
+		waitForThreads();
+
+		assertEquals(clients * 2 - 1, tcpReceived.get());
+		assertEquals(clients, udpReceived.get());
+		// Each broadcast serialized the message only once.
+		assertEquals(3, writes.get());
+	}
+
+	private void register (Kryo kryo, final AtomicInteger writes) {
+		kryo.register(Message.class, new SimpleSerializer<Message>() {
+			public void write (ByteBuffer buffer, Message message) {
+				writes.incrementAndGet();
+				IntSerializer.put(buffer, message.value, false);
+			}
+
+			public Message read (ByteBuffer buffer) {
+				Message message = new Message();
+				message.value = IntSerializer.get(buffer, false);
+				return message;
+			}
+		});
+	}
+
+	static public class Message {
+		public int value;
+	}
+}
@@ -0,0 +1,158 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+public class LargeObjectTest extends KryoNetTestCase {
+	public void testLargeObjects () throws IOException {
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicInteger received = new AtomicInteger();
+		final int[] sizes = {100, 5000, 100, 300000, 1500, 70000};
+
+		final Server server = new Server(1024 * 1024, 2048);
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort);
+		server.addListener(new Listener() {
+			public void received (Connection connection, Object object) {
+				if (!(object instanceof LargeMessage)) return;
+				// Echo the objects back, which requires growing the buffers on the server as well.
+				connection.sendTCP(object);
+			}
+		});
+
+		// ----
+
+		final Client client = new Client(1024 * 1024, 2048);
+		register(client.getKryo());
+		startEndPoint(client);
+		client.addListener(new Listener() {
+			public void connected (Connection connection) {
+				for (int i = 0; i < sizes.length; i++) {
+					LargeMessage message = new LargeMessage();
+					message.bytes = new byte[sizes[i]];
+					for (int ii = 0; ii < message.bytes.length; ii++)
+						message.bytes[ii] = (byte)(ii + i);
+					connection.sendTCP(message);
+				}
+			}
+
+			public void received (Connection connection, Object object) {
+				if (!(object instanceof LargeMessage)) return;
+				LargeMessage message = (LargeMessage)object;
+				int i = received.getAndIncrement();
+				if (message.bytes.length != sizes[i]) errors.incrementAndGet();
+				for (int ii = 0; ii < message.bytes.length; ii++) {
+					if (message.bytes[ii] != (byte)(ii + i)) {
+						errors.incrementAndGet();
+						break;
+					}
+				}
+				if (i == sizes.length - 1) stopEndPoints();
+			}
+		});
+		client.connect(5000, host, tcpPort);
+
+		waitForThreads();
+
+		assertEquals(0, errors.get());
+		assertEquals(sizes.length, received.get());
+	}
+
+	public void testMaxObjectSize () throws IOException {
+		final AtomicInteger disconnected = new AtomicInteger();
+
+		final Server server = new Server();
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort);
+		server.addListener(new Listener() {
+			public void connected (Connection connection) {
+				connection.setMaxObjectSize(10000);
+			}
+
+			public void disconnected (Connection connection) {
+				disconnected.incrementAndGet();
+				stopEndPoints();
+			}
+		});
+
+		// ----
+
+		final Client client = new Client(1024 * 1024, 2048);
+		register(client.getKryo());
+		startEndPoint(client);
+		client.addListener(new Listener() {
+			public void connected (Connection connection) {
+				LargeMessage message = new LargeMessage();
+				message.bytes = new byte[20000];
+				connection.sendTCP(message);
+			}
+		});
+		client.connect(5000, host, tcpPort);
+
+		waitForThreads();
+
+		assertEquals(1, disconnected.get());
+	}
+
+	public void testSplitLengthHeader () throws Exception {
+		final AtomicInteger received = new AtomicInteger();
+
+		final Server server = new Server(1024 * 1024, 2048);
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort);
+		server.addListener(new Listener() {
+			public void received (Connection connection, Object object) {
+				if (!(object instanceof LargeMessage)) return;
+				received.set(((LargeMessage)object).bytes.length);
+				stopEndPoints();
+			}
+		});
+
+		// ----
+
+		// Serialize with the same registrations as an end point.
+		Client client = new Client();
+		register(client.getKryo());
+		LargeMessage message = new LargeMessage();
+		message.bytes = new byte[5000];
+		ByteBuffer body = ByteBuffer.allocate(8192);
+		client.getKryo().writeClassAndObject(body, message);
+		ByteBuffer header = ByteBuffer.allocate(5);
+		IntSerializer.put(header, body.position(), true);
+
+		// The length arrives before any byte of the object, which is larger than the object buffer.
+		Socket socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(new InetSocketAddress(host, tcpPort), 5000);
+		OutputStream output = socket.getOutputStream();
+		output.write(header.array(), 0, header.position());
+		output.flush();
+		Thread.sleep(300);
+		output.write(body.array(), 0, body.position());
+		output.flush();
+
+		waitForThreads();
+		socket.close();
+
+		assertEquals(5000, received.get());
+	}
+
+	private void register (Kryo kryo) {
+		kryo.register(byte[].class);
+		kryo.register(LargeMessage.class);
+	}
+
+	static public class LargeMessage {
+		public byte[] bytes;
+	}
+}
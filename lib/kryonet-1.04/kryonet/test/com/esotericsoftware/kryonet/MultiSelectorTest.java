@@ -0,0 +1,96 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+
+public class MultiSelectorTest extends KryoNetTestCase {
+	static final int clients = 8, messages = 100;
+
+	public void testMultiSelector () throws IOException {
+		final ConcurrentHashMap<Integer, Thread> connectionThreads = new ConcurrentHashMap();
+		final ConcurrentHashMap<Integer, Integer> nextSequence = new ConcurrentHashMap();
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicInteger finished = new AtomicInteger();
+
+		final Server server = new Server(16384, 2048, new Kryo(), 4);
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort, udpPort);
+		server.addListener(new Listener() {
+			public void connected (Connection connection) {
+				connectionThreads.put(connection.getID(), Thread.currentThread());
+				nextSequence.put(connection.getID(), 0);
+			}
+
+			public void received (Connection connection, Object object) {
+				if (connectionThreads.get(connection.getID()) != Thread.currentThread()) {
+					System.out.println("Wrong thread for: " + connection);
+					errors.incrementAndGet();
+				}
+				if (!(object instanceof Message)) return;
+				Message message = (Message)object;
+				if (!message.isTCP) return;
+				int expected = nextSequence.get(connection.getID());
+				if (message.sequence != expected) {
+					System.out.println(connection + " expected " + expected + " but received " + message.sequence);
+					errors.incrementAndGet();
+				}
+				nextSequence.put(connection.getID(), message.sequence + 1);
+				if (message.sequence == messages - 1) {
+					Message done = new Message();
+					done.sequence = -1;
+					connection.sendTCP(done);
+				}
+			}
+		});
+
+		// ----
+
+		for (int i = 0; i < clients; i++) {
+			Client client = new Client();
+			register(client.getKryo());
+			startEndPoint(client);
+			client.addListener(new Listener() {
+				public void connected (Connection connection) {
+					for (int i = 0; i < messages; i++) {
+						Message message = new Message();
+						message.sequence = i;
+						message.isTCP = true;
+						connection.sendTCP(message);
+						if (i % 10 == 0) {
+							message.isTCP = false;
+							connection.sendUDP(message);
+						}
+					}
+				}
+
+				public void received (Connection connection, Object object) {
+					if (object instanceof Message && ((Message)object).sequence == -1) {
+						if (finished.incrementAndGet() == clients) stopEndPoints();
+					}
+				}
+			});
+			client.connect(5000, host, tcpPort, udpPort);
+		}
+
+		waitForThreads();
+
+		assertEquals(0, errors.get());
+		assertEquals(clients, finished.get());
+		// Round-robin over four selector threads.
+		assertEquals(4, new HashSet(connectionThreads.values()).size());
+	}
+
+	private void register (Kryo kryo) {
+		kryo.register(Message.class);
+	}
+
+	static public class Message {
+		public int sequence;
+		public boolean isTCP;
+	}
+}
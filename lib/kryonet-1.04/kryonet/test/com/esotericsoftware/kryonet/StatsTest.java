@@ -0,0 +1,66 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StatsTest extends KryoNetTestCase {
+	public void testStats () throws IOException {
+		final AtomicInteger received = new AtomicInteger();
+		final Connection[] serverConnection = new Connection[1];
+		final Client[] client = new Client[1];
+
+		final Server server = new Server();
+		startEndPoint(server);
+		server.bind(tcpPort, udpPort);
+		server.addListener(new Listener() {
+			public void connected (Connection connection) {
+				serverConnection[0] = connection;
+			}
+
+			public void received (Connection connection, Object object) {
+				if (object instanceof String && received.incrementAndGet() == 20) {
+					// Stop the keep alives so the byte counts of both ends match when the end points stop.
+					client[0].setKeepAliveTCP(0);
+					stopEndPoints(1000);
+				}
+			}
+		});
+
+		// ----
+
+		client[0] = new Client();
+		startEndPoint(client[0]);
+		client[0].connect(5000, host, tcpPort, udpPort);
+		// Keep alives are pings, so return trip times are measured without calling updateReturnTripTime.
+		client[0].setKeepAliveTCP(100);
+		try {
+			Thread.sleep(1500);
+		} catch (InterruptedException ignored) {
+		}
+		for (int i = 0; i < 10; i++) {
+			client[0].sendTCP("TCP message");
+			client[0].sendUDP("UDP message");
+		}
+
+		waitForThreads();
+
+		NetworkStats clientStats = client[0].getStats();
+		NetworkStats serverStats = serverConnection[0].getStats();
+		assertTrue(clientStats.getTcpObjectsSent() >= 10);
+		assertTrue(clientStats.getUdpObjectsSent() >= 10);
+		assertTrue(serverStats.getTcpObjectsReceived() >= 10);
+		assertEquals(10, serverStats.getUdpObjectsReceived());
+		assertEquals(clientStats.getTcpBytesSent(), serverStats.getTcpBytesReceived());
+		assertTrue(serverStats.getDeserializationNanos() > 0);
+		assertTrue(clientStats.getSerializationNanos() > 0);
+
+		int returnTrips = 0;
+		for (int count : clientStats.getReturnTripHistogram())
+			returnTrips += count;
+		assertTrue(returnTrips > 0);
+
+		// The server aggregates all of its connections.
+		assertEquals(serverStats.getTcpBytesReceived(), server.getStats().getTcpBytesReceived());
+		assertEquals(serverStats.getUdpObjectsSent(), server.getStats().getUdpObjectsSent());
+	}
+}
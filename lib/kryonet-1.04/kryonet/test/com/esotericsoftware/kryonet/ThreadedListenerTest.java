@@ -0,0 +1,107 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryonet.Listener.ThreadedListener;
+
+public class ThreadedListenerTest extends KryoNetTestCase {
+	static final int clients = 6, messages = 200;
+
+	public void testOrderedPerConnection () throws IOException {
+		final ConcurrentHashMap<Integer, Integer> nextSequence = new ConcurrentHashMap();
+		final ConcurrentHashMap<Integer, AtomicInteger> running = new ConcurrentHashMap();
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet());
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicInteger finished = new AtomicInteger();
+		final AtomicInteger fastFinishedFirst = new AtomicInteger();
+
+		final Server server = new Server();
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort);
+		final ThreadedListener listener = new ThreadedListener(new Listener() {
+			public void connected (Connection connection) {
+				nextSequence.put(connection.getID(), 0);
+				running.put(connection.getID(), new AtomicInteger());
+			}
+
+			public void received (Connection connection, Object object) {
+				if (!(object instanceof Message)) return;
+				Message message = (Message)object;
+				threads.add(Thread.currentThread());
+				AtomicInteger inProgress = running.get(connection.getID());
+				if (inProgress.incrementAndGet() != 1) {
+					System.out.println("Concurrent notifications for: " + connection);
+					errors.incrementAndGet();
+				}
+				int expected = nextSequence.get(connection.getID());
+				if (message.sequence != expected) {
+					System.out.println(connection + " expected " + expected + " but received " + message.sequence);
+					errors.incrementAndGet();
+				}
+				nextSequence.put(connection.getID(), expected + 1);
+				// One connection's game logic is slow.
+				if (message.slow) sleep(2);
+				inProgress.decrementAndGet();
+				if (message.sequence == messages - 1) {
+					int count = finished.incrementAndGet();
+					if (message.slow && count == clients) fastFinishedFirst.incrementAndGet();
+					if (count == clients) stopEndPoints(500);
+				}
+			}
+		}, 4);
+		server.addListener(listener);
+
+		// ----
+
+		for (int i = 0; i < clients; i++) {
+			final boolean slow = i == 0;
+			Client client = new Client();
+			register(client.getKryo());
+			startEndPoint(client);
+			client.addListener(new Listener() {
+				public void connected (Connection connection) {
+					for (int i = 0; i < messages; i++) {
+						Message message = new Message();
+						message.sequence = i;
+						message.slow = slow;
+						connection.sendTCP(message);
+					}
+				}
+			});
+			client.connect(5000, host, tcpPort);
+		}
+
+		waitForThreads();
+
+		assertEquals(0, errors.get());
+		assertEquals(clients, finished.get());
+		assertTrue(threads.size() > 1);
+		// The slow connection did not hold up the others.
+		assertEquals(1, fastFinishedFirst.get());
+		assertTrue(listener.getMaxQueueDepth() > 0);
+		assertEquals(0, listener.getQueueDepth());
+	}
+
+	static void sleep (int millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ignored) {
+		}
+	}
+
+	private void register (Kryo kryo) {
+		kryo.register(Message.class);
+	}
+
+	static public class Message {
+		public int sequence;
+		public boolean slow;
+	}
+}
@@ -0,0 +1,79 @@
+package com.esotericsoftware.kryonet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esotericsoftware.kryo.Kryo;
+
+public class WriteQueueTest extends KryoNetTestCase {
+	static final int messages = 20000;
+
+	public void testSmallAndLargeMessages () throws IOException {
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicInteger received = new AtomicInteger();
+
+		Server server = new Server(4 * 1024 * 1024, 2048);
+		register(server.getKryo());
+		startEndPoint(server);
+		server.bind(tcpPort);
+		server.addListener(new Listener() {
+			public void received (Connection connection, Object object) {
+				if (!(object instanceof Message)) return;
+				Message message = (Message)object;
+				int count = received.getAndIncrement();
+				if (message.sequence != count || message.bytes.length != count % 1500) {
+					System.out.println("Expected " + count + " but received " + message.sequence);
+					errors.incrementAndGet();
+				}
+				if (count == messages - 1) stopEndPoints();
+			}
+		});
+
+		// ----
+
+		Client client = new Client(4 * 1024 * 1024, 2048);
+		register(client.getKryo());
+		startEndPoint(client);
+		client.addListener(new Listener() {
+			public void connected (Connection connection) {
+				// Mixed sizes fill the socket, so later objects are queued and written with gathering writes.
+				for (int i = 0; i < messages; i++) {
+					Message message = new Message();
+					message.sequence = i;
+					message.bytes = new byte[i % 1500];
+					connection.sendTCP(message);
+				}
+			}
+		});
+		client.connect(5000, host, tcpPort);
+
+		waitForThreads();
+
+		assertEquals(0, errors.get());
+		assertEquals(messages, received.get());
+	}
+
+	public void testBufferPool () {
+		BufferPool pool = new BufferPool(64, 1);
+		ByteBuffer a = pool.obtain(), b = pool.obtain();
+		assertTrue(a.isDirect());
+		a.put((byte)1);
+		pool.free(a);
+		pool.free(b);
+		ByteBuffer c = pool.obtain();
+		assertSame(a, c);
+		assertEquals(0, c.position());
+		assertNotSame(b, pool.obtain());
+	}
+
+	private void register (Kryo kryo) {
+		kryo.register(byte[].class);
+		kryo.register(Message.class);
+	}
+
+	static public class Message {
+		public int sequence;
+		public byte[] bytes;
+	}
+}
@@ -11,20 +11,41 @@ import org.newdawn.slick.particles.ParticleSystem;
 import utils.ResourceManager;
 
 public class Bullet {
+	/**
+	 * Abstand zu einem Punkt der Schlange, ab dem er getroffen ist.
+	 */
+	public static final int HIT_RADIUS = 13;
+	/**
+	 * So viele Punkte vor und nach dem Treffer werden gelscht.
+	 */
+	public static final int HOLE_SIZE = 7;
+
+	private int id = -1;
 	private PlayerPoint position;
 	private int speed = 4;
+	private int stepX, stepY;
 	private Image img;
 	
 	private ParticleSystem bulletSystem = null;
 	private ConfigurableEmitter emitter = null;
 	
-	private int curDelta = 0;
-	private int maxDelta = 1;
-	
 	public Bullet(PlayerPoint position) {
-		this.position = position;
+		this(position.x, position.y, position.getAngle());
+	}
+
+	/**
+	 * Fr die Kopie eines Schusses auf dem Client, Startpunkt und Winkel kommen vom Server.
+	 */
+	public Bullet(int x, int y, float angle) {
+		// eigener Punkt, der Kopf der Schlange darf nicht mitbewegt werden
+		position = new PlayerPoint(x, y, angle);
+		stepX = (int) Math.round(Math.cos(angle) * 3) * speed;
+		stepY = (int) Math.round(Math.sin(angle) * 3) * speed;
+		if (ResourceManager.isHeadless()) {
+			return;
+		}
 		img = ResourceManager.getImage("bullet").copy();
-		img.setRotation((float) Math.toDegrees(this.position.getAngle()) + 90);
+		img.setRotation((float) Math.toDegrees(angle) + 90);
 		try {
 			bulletSystem = new ParticleSystem("data/emitters/particle.tga", 1000);
 			emitter = ParticleIO.loadEmitter("data/emitters/shootEmitter.xml");
@@ -33,15 +54,17 @@ public class Bullet {
 			e.printStackTrace();
 		}
 	}
-	
-	public void update(int delta) {
-		curDelta += delta;
-		if (curDelta > maxDelta) {
-			curDelta = 0;
-			position.x += Math.round(Math.cos(position.getAngle()) * 3) * speed;
-			position.y += Math.round(Math.sin(position.getAngle()) * 3) * speed;
-			emitter.setPosition(position.x, position.y);
-		}
+
+	/**
+	 * Bewegt den Schuss um einen Simulationsschritt weiter.
+	 */
+	public void move() {
+		position.x += stepX;
+		position.y += stepY;
+	}
+
+	public void updateEffects(int delta) {
+		emitter.setPosition(position.x, position.y);
 		bulletSystem.update(delta);
 	}
 	
@@ -49,13 +72,24 @@ public class Bullet {
 		img.drawCentered(position.x, position.y);
 		bulletSystem.render();
 	}
+	
+	/**
+	 * @return die vom Raum vergebene ID, ber die Server und Clients den Schuss ansprechen
+	 */
+	public int getID() {
+		return id;
+	}
+
+	public void setID(int id) {
+		this.id = id;
+	}
 
 	public PlayerPoint getPosition() {
 		return position;
 	}
 	
 	public boolean isInsideScreen(){
-		if (position.x + img.getWidth() < 0 || position.y + img.getHeight() < 0 || position.x > GameConstants.APP_WIDHT || position.y > GameConstants.APP_HEIGHT){
+		if (position.x + GameConstants.BULLET_SIZE < 0 || position.y + GameConstants.BULLET_SIZE < 0 || position.x > GameConstants.APP_WIDHT || position.y > GameConstants.APP_HEIGHT){
 			return false;
 		}
 		return true;
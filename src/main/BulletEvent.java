@@ -0,0 +1,132 @@
+package main;
+
+import java.nio.ByteBuffer;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Ein Schuss wurde abgefeuert oder hat eine Schlange getroffen. Die Flugbahn ist durch Startpunkt und Winkel festgelegt, die Clients bewegen ihre
+ * Kopie daher selbst und bekommen keine Positionen pro Schritt. Verlsst ein Schuss die Spielwelt, erkennen sie das ebenfalls selbst.
+ *
+ * Format: Art, tick, ID, bei SPAWN zustzlich slot des Schtzen, x, y, Winkel, bei IMPACT slot und Index des getroffenen Punktes, x, y.
+ */
+public class BulletEvent implements CustomSerialization {
+	public static final int SPAWN = 0;
+	public static final int IMPACT = 1;
+
+	private int kind;
+	private int tick;
+	private int id;
+	private int slot;
+	private int index;
+	private int x, y;
+	private float angle;
+
+	public BulletEvent() {
+	}
+
+	/**
+	 * Ein neuer Schuss.
+	 */
+	public BulletEvent(Bullet bullet, int shooterSlot) {
+		kind = SPAWN;
+		id = bullet.getID();
+		slot = shooterSlot;
+		x = bullet.getPosition().x;
+		y = bullet.getPosition().y;
+		angle = bullet.getPosition().getAngle();
+	}
+
+	/**
+	 * Ein Treffer.
+	 *
+	 * @param slot
+	 *            - der Spieler, dessen Schlange getroffen wurde
+	 * @param index
+	 *            - der getroffene Punkt
+	 */
+	public BulletEvent(Bullet bullet, int slot, int index) {
+		kind = IMPACT;
+		id = bullet.getID();
+		this.slot = slot;
+		this.index = index;
+		x = bullet.getPosition().x;
+		y = bullet.getPosition().y;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return der Simulationsschritt, in dem das Ereignis stattfand
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	public void setTick(int tick) {
+		this.tick = tick;
+	}
+
+	public int getID() {
+		return id;
+	}
+
+	/**
+	 * @return bei SPAWN der Schtze, bei IMPACT der getroffene Spieler
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Erzeugt auf dem Client die Kopie des Schusses, nur fr SPAWN.
+	 */
+	public Bullet createBullet() {
+		Bullet bullet = new Bullet(x, y, angle);
+		bullet.setID(id);
+		return bullet;
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		buffer.put((byte) kind);
+		IntSerializer.put(buffer, tick, true);
+		IntSerializer.put(buffer, id, true);
+		buffer.put((byte) slot);
+		if (kind == IMPACT) {
+			IntSerializer.put(buffer, index, true);
+		}
+		IntSerializer.put(buffer, x, false);
+		IntSerializer.put(buffer, y, false);
+		if (kind == SPAWN) {
+			// exakt, damit Server und Client dieselbe Schrittweite berechnen
+			buffer.putFloat(angle);
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		kind = buffer.get();
+		tick = IntSerializer.get(buffer, true);
+		id = IntSerializer.get(buffer, true);
+		slot = buffer.get();
+		if (kind == IMPACT) {
+			index = IntSerializer.get(buffer, true);
+		}
+		x = IntSerializer.get(buffer, false);
+		y = IntSerializer.get(buffer, false);
+		if (kind == SPAWN) {
+			angle = buffer.getFloat();
+		}
+	}
+}
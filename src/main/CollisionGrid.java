@@ -0,0 +1,155 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Ein gleichmiges Raster ber die Spielwelt, in dem alle aktiven Punkte der Schlangen einsortiert werden. Eine Kollisionsabfrage muss dadurch nur
+ * die Punkte der 3x3 Nachbarzellen prfen und nicht mehr alle Punkte aller Spieler.
+ *
+ * Ein Eintrag besteht aus der Schlange und dem Index des Punktes darin. Die Zellgre muss mindestens so gro sein wie der Abstand der groben Prfung,
+ * damit kein Kandidat auerhalb der Nachbarzellen liegen kann.
+ */
+public class CollisionGrid {
+	public static final int CELL_SIZE = 16;
+
+	private int cols;
+	private int rows;
+	private Cell[] cells;
+
+	private Cell result = new Cell();
+
+	public CollisionGrid(int width, int height) {
+		cols = width / CELL_SIZE + 1;
+		rows = height / CELL_SIZE + 1;
+		cells = new Cell[cols * rows];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = new Cell();
+		}
+	}
+
+	/**
+	 * Sortiert einen Punkt einer Schlange in seine Zelle ein.
+	 *
+	 * @param trail
+	 *            - die Schlange
+	 * @param index
+	 *            - der Index des Punktes
+	 */
+	public void insert(Trail trail, int index) {
+		getCell(trail.getX(index), trail.getY(index)).add(trail, index);
+	}
+
+	/**
+	 * Entfernt einen Punkt aus seiner Zelle, z.B. wenn er von einem Schuss gelscht wurde.
+	 *
+	 * @param trail
+	 *            - die Schlange
+	 * @param index
+	 *            - der Index des Punktes
+	 */
+	public void remove(Trail trail, int index) {
+		getCell(trail.getX(index), trail.getY(index)).remove(trail, index);
+	}
+
+	/**
+	 * Sammelt alle Punkte aus der Zelle der Position und ihren acht Nachbarzellen. Das Ergebnis kann bis zur nchsten Abfrage ber
+	 * {@link #getResultCount()}, {@link #getResultTrail(int)} und {@link #getResultIndex(int)} ausgelesen werden.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void query(int x, int y) {
+		query(x, y, x, y);
+	}
+
+	/**
+	 * Wie {@link #query(int, int)}, aber fr eine Strecke, z.B. den Weg eines Schusses in einem Schritt. Gesammelt werden alle Zellen des umgebenden
+	 * Rechtecks und ihre Nachbarn, jeder Punkt nur einmal.
+	 */
+	public void query(int x0, int y0, int x1, int y1) {
+		result.size = 0;
+		int minX = cellX(Math.min(x0, x1));
+		int maxX = cellX(Math.max(x0, x1));
+		int minY = cellY(Math.min(y0, y1));
+		int maxY = cellY(Math.max(y0, y1));
+		for (int j = Math.max(minY - 1, 0); j <= Math.min(maxY + 1, rows - 1); j++) {
+			for (int i = Math.max(minX - 1, 0); i <= Math.min(maxX + 1, cols - 1); i++) {
+				Cell cell = cells[j * cols + i];
+				for (int k = 0; k < cell.size; k++) {
+					result.add(cell.trails[k], cell.indices[k]);
+				}
+			}
+		}
+	}
+
+	public int getResultCount() {
+		return result.size;
+	}
+
+	public Trail getResultTrail(int i) {
+		return result.trails[i];
+	}
+
+	public int getResultIndex(int i) {
+		return result.indices[i];
+	}
+
+	/**
+	 * Leert das komplette Raster.
+	 */
+	public void clear() {
+		for (int i = 0; i < cells.length; i++) {
+			cells[i].clear();
+		}
+	}
+
+	private Cell getCell(int x, int y) {
+		return cells[cellY(y) * cols + cellX(x)];
+	}
+
+	// Punkte auerhalb der Spielwelt landen in den Randzellen
+	private int cellX(int x) {
+		return Math.min(Math.max(x / CELL_SIZE, 0), cols - 1);
+	}
+
+	private int cellY(int y) {
+		return Math.min(Math.max(y / CELL_SIZE, 0), rows - 1);
+	}
+
+	/**
+	 * Eine Zelle des Rasters mit parallelen Arrays fr Schlange und Index.
+	 */
+	private static class Cell {
+		private Trail[] trails = new Trail[8];
+		private int[] indices = new int[8];
+		private int size = 0;
+
+		private void add(Trail trail, int index) {
+			if (size == indices.length) {
+				trails = Arrays.copyOf(trails, size * 2);
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+			trails[size] = trail;
+			indices[size] = index;
+			size++;
+		}
+
+		private void remove(Trail trail, int index) {
+			for (int i = 0; i < size; i++) {
+				if (trails[i] == trail && indices[i] == index) {
+					// letzten Eintrag nachrcken, die Reihenfolge spielt keine Rolle
+					size--;
+					trails[i] = trails[size];
+					indices[i] = indices[size];
+					trails[size] = null;
+					return;
+				}
+			}
+		}
+
+		private void clear() {
+			Arrays.fill(trails, 0, size, null);
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.Vector;
+
+import main.powerup.Powerup;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Der komplette Spielzustand eines Raums, den ein Client beim Einstieg in eine laufende Runde braucht: alle Schlangen und alle Powerups. Er wird nicht
+ * als ein Objekt verschickt, sondern komprimiert und in Stcken, siehe main.server.StateTransfer.
+ *
+ * Format: tick, Anzahl Spieler, pro Spieler slot und Trail, Anzahl Powerups, pro Powerup ID, Typ, x, y, Alter.
+ */
+public class FullState implements CustomSerialization {
+	private int tick;
+	private Vector<Integer> slots = new Vector<Integer>();
+	private Vector<Trail> trails = new Vector<Trail>();
+	private int powerupCount = 0;
+	private int[] powerupData = new int[0];
+
+	public FullState() {
+	}
+
+	/**
+	 * Nimmt den Zustand eines Raums auf. Die Schlangen werden nicht kopiert, der Zustand muss also im Simulations-Thread serialisiert werden.
+	 */
+	public FullState(Room room, int tick) {
+		this.tick = tick;
+		Vector<Player> players = room.getPlayers();
+		for (int i = 0; i < players.size(); i++) {
+			slots.add(players.get(i).getProperties().getSlot());
+			trails.add(players.get(i).getProperties().getTrail());
+		}
+		Vector<Powerup> powerups = room.getPowerups();
+		powerupCount = powerups.size();
+		powerupData = new int[powerupCount * 5];
+		for (int i = 0; i < powerupCount; i++) {
+			Powerup pu = powerups.get(i);
+			powerupData[i * 5] = pu.getID();
+			powerupData[i * 5 + 1] = pu.getType();
+			powerupData[i * 5 + 2] = pu.getPosition().x;
+			powerupData[i * 5 + 3] = pu.getPosition().y;
+			powerupData[i * 5 + 4] = pu.getAge();
+		}
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public int getPlayerCount() {
+		return slots.size();
+	}
+
+	public int getSlot(int index) {
+		return slots.get(index);
+	}
+
+	public Trail getTrail(int index) {
+		return trails.get(index);
+	}
+
+	/**
+	 * Erzeugt die Powerups fr den Client.
+	 */
+	public Vector<Powerup> createPowerups() {
+		Vector<Powerup> powerups = new Vector<Powerup>();
+		for (int i = 0; i < powerupCount; i++) {
+			Powerup pu = Powerup.create(powerupData[i * 5 + 1], powerupData[i * 5 + 2], powerupData[i * 5 + 3]);
+			pu.setID(powerupData[i * 5]);
+			pu.setAge(powerupData[i * 5 + 4]);
+			powerups.add(pu);
+		}
+		return powerups;
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		IntSerializer.put(buffer, tick, true);
+		IntSerializer.put(buffer, slots.size(), true);
+		for (int i = 0; i < slots.size(); i++) {
+			buffer.put((byte) (int) slots.get(i));
+			trails.get(i).writeObjectData(kryo, buffer);
+		}
+		IntSerializer.put(buffer, powerupCount, true);
+		for (int i = 0; i < powerupCount; i++) {
+			IntSerializer.put(buffer, powerupData[i * 5], true);
+			buffer.put((byte) powerupData[i * 5 + 1]);
+			IntSerializer.put(buffer, powerupData[i * 5 + 2], false);
+			IntSerializer.put(buffer, powerupData[i * 5 + 3], false);
+			IntSerializer.put(buffer, powerupData[i * 5 + 4], false);
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		tick = IntSerializer.get(buffer, true);
+		int players = IntSerializer.get(buffer, true);
+		slots.clear();
+		trails.clear();
+		for (int i = 0; i < players; i++) {
+			slots.add((int) buffer.get());
+			Trail trail = new Trail();
+			trail.readObjectData(kryo, buffer);
+			trails.add(trail);
+		}
+		powerupCount = IntSerializer.get(buffer, true);
+		powerupData = new int[powerupCount * 5];
+		for (int i = 0; i < powerupCount; i++) {
+			powerupData[i * 5] = IntSerializer.get(buffer, true);
+			powerupData[i * 5 + 1] = buffer.get();
+			powerupData[i * 5 + 2] = IntSerializer.get(buffer, false);
+			powerupData[i * 5 + 3] = IntSerializer.get(buffer, false);
+			powerupData[i * 5 + 4] = IntSerializer.get(buffer, false);
+		}
+	}
+}
@@ -15,10 +15,45 @@ public class GameConstants {
 	public final static int APP_WIDHT = 1024;
 	public final static int APP_HEIGHT = 768;
 
+	/**
+	 * Abmessungen der Bilder, die fr die Kollision gebraucht werden. Damit muss der Server keine Bilder laden.
+	 */
+
+	public final static int TRAIL_WIDTH = 4;
+	public final static int TRAIL_HEIGHT = 6;
+	public final static int BULLET_SIZE = 8;
+	public final static int POWERUP_SIZE = 34;
+
 	public final static int PORT_TCP = 54555;
 	public final static int PORT_UDP = 54777;
 
 	public static final int MAX_PLAYERS = 8;
+	public static final int MIN_PLAYERS = 2;
+
+	/**
+	 * Lnge eines Simulationsschritts in ms
+	 */
+	public static final int SIMULATION_TICK = 30;
+
+	/**
+	 * Standardabstand zwischen zwei Snapshots an einen Client in ms, hchstens einer pro Simulationsschritt
+	 */
+	public static final int SNAPSHOT_INTERVAL = 30;
+	/**
+	 * Auch Clients mit hoher Latenz bekommen mindestens so oft (in ms) eine Snapshot
+	 */
+	public static final int MAX_SNAPSHOT_INTERVAL = 200;
+	/**
+	 * So oft (in ms) misst der Server die Return Trip Time jedes Clients
+	 */
+	public static final int PING_INTERVAL = 1000;
+
+	/**
+	 * Kollisionsmodi
+	 */
+
+	public static final int COLLISION_MODE_SHAPES = 0;
+	public static final int COLLISION_MODE_BITMAP = 1;
 
 	/**
 	 * State IDs
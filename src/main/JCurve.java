@@ -1,6 +1,6 @@
 package main;
 
-import main.server.CurveServer;
+import main.server.RoomManager;
 
 import org.newdawn.slick.AppGameContainer;
 import org.newdawn.slick.GameContainer;
@@ -19,7 +19,7 @@ public class JCurve extends StateBasedGame {
 	public static PlayerProperties userData = null;
 
 	public static boolean createServer = false;
-	public static CurveServer server = null;
+	public static RoomManager server = null;
 	
 	private static LobbyState lobby = null;
 
@@ -10,4 +10,10 @@ public class NetworkConstants {
 	public static final int PLAYER_SHOOT = 7;
 	public static final int PLAYER_DISCONNECT = 8;
 
+	// Bits im Bitfeld von PlayerInput
+	public static final int INPUT_LEFT = 1;
+	public static final int INPUT_RIGHT = 2;
+	public static final int INPUT_BOOST = 4;
+	public static final int INPUT_SHOOT = 8;
+
 }
@@ -0,0 +1,109 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Ein Bit pro Pixel der Spielwelt, gepackt in ein long[]. Ein gesetztes Bit bedeutet, dass dort ein Teil einer Schlange liegt. Die Kollision des
+ * Kopfes wird dadurch unabhngig von der Lnge der Schlangen, da nur die Pixel unter dem Kopf geprft werden mssen.
+ *
+ * Die Rechtecke werden wie bei {@link OrientedBox} ber ihre vier Eckpunkte angegeben.
+ */
+public class OccupancyBitmap {
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private long[] bits;
+
+	public OccupancyBitmap(int width, int height) {
+		this.width = width;
+		this.height = height;
+		wordsPerRow = (width + 63) / 64;
+		bits = new long[wordsPerRow * height];
+	}
+
+	/**
+	 * Setzt alle Pixel, deren Mittelpunkt im Rechteck liegt.
+	 */
+	public void stamp(float[] corners) {
+		rasterize(corners, true, false);
+	}
+
+	/**
+	 * Lscht alle Pixel, deren Mittelpunkt im Rechteck liegt.
+	 */
+	public void erase(float[] corners) {
+		rasterize(corners, false, false);
+	}
+
+	/**
+	 * Prft, ob einer der Pixel unter dem Rechteck gesetzt ist.
+	 *
+	 * @return true, wenn mindestens ein Pixel belegt ist
+	 */
+	public boolean isOccupied(float[] corners) {
+		return rasterize(corners, false, true);
+	}
+
+	public boolean get(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return false;
+		}
+		return (bits[y * wordsPerRow + (x >> 6)] & (1L << (x & 63))) != 0;
+	}
+
+	public void clear() {
+		Arrays.fill(bits, 0);
+	}
+
+	/**
+	 * Luft ber alle Pixel im umschlieenden Rechteck und behandelt die, deren Mittelpunkt im gedrehten Rechteck liegt.
+	 *
+	 * @param value
+	 *            - Wert, auf den die Pixel gesetzt werden
+	 * @param probe
+	 *            - wenn true, werden die Pixel nur gelesen
+	 * @return bei probe, ob ein gesetzter Pixel gefunden wurde
+	 */
+	private boolean rasterize(float[] corners, boolean value, boolean probe) {
+		float minX = Math.min(Math.min(corners[0], corners[2]), Math.min(corners[4], corners[6]));
+		float maxX = Math.max(Math.max(corners[0], corners[2]), Math.max(corners[4], corners[6]));
+		float minY = Math.min(Math.min(corners[1], corners[3]), Math.min(corners[5], corners[7]));
+		float maxY = Math.max(Math.max(corners[1], corners[3]), Math.max(corners[5], corners[7]));
+		int startX = Math.max((int) Math.floor(minX), 0);
+		int endX = Math.min((int) Math.ceil(maxX), width - 1);
+		int startY = Math.max((int) Math.floor(minY), 0);
+		int endY = Math.min((int) Math.ceil(maxY), height - 1);
+
+		float centerX = (corners[0] + corners[4]) / 2;
+		float centerY = (corners[1] + corners[5]) / 2;
+		float ux = corners[2] - corners[0], uy = corners[3] - corners[1];
+		float vx = corners[6] - corners[0], vy = corners[7] - corners[1];
+		// Projektion auf die Achsen liegt fr Punkte im Rechteck zwischen -len/2 und len/2
+		float halfU = (ux * ux + uy * uy) / 2;
+		float halfV = (vx * vx + vy * vy) / 2;
+
+		for (int y = startY; y <= endY; y++) {
+			float dy = y + .5f - centerY;
+			for (int x = startX; x <= endX; x++) {
+				float dx = x + .5f - centerX;
+				float projU = dx * ux + dy * uy;
+				float projV = dx * vx + dy * vy;
+				if (projU < -halfU || projU > halfU || projV < -halfV || projV > halfV) {
+					continue;
+				}
+				int word = y * wordsPerRow + (x >> 6);
+				long mask = 1L << (x & 63);
+				if (probe) {
+					if ((bits[word] & mask) != 0) {
+						return true;
+					}
+				} else if (value) {
+					bits[word] |= mask;
+				} else {
+					bits[word] &= ~mask;
+				}
+			}
+		}
+		return false;
+	}
+}
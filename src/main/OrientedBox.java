@@ -0,0 +1,85 @@
+package main;
+
+/**
+ * Kollisionstests fr gedrehte Rechtecke, die ohne Objekterzeugung auskommen. Ein Rechteck wird dabei durch seine vier Eckpunkte beschrieben, die in
+ * einem float-Array in der Reihenfolge x0, y0, x1, y1, x2, y2, x3, y3 (im Uhrzeigersinn) liegen.
+ */
+public class OrientedBox {
+
+	/**
+	 * Berechnet die Eckpunkte des Rechtecks (x, y, width, height), das um seinen Mittelpunkt um angle gedreht wird. Entspricht
+	 * Transform.createRotateTransform(angle, centerX, centerY) auf einem Rectangle.
+	 *
+	 * @param corners
+	 *            - Array der Lnge 8, in das die Eckpunkte geschrieben werden
+	 */
+	public static void computeCorners(float x, float y, float width, float height, float angle, float[] corners) {
+		float cos = (float) Math.cos(angle);
+		float sin = (float) Math.sin(angle);
+		float hw = width / 2;
+		float hh = height / 2;
+		float cx = x + hw;
+		float cy = y + hh;
+		setCorner(corners, 0, cx, cy, -hw, -hh, cos, sin);
+		setCorner(corners, 1, cx, cy, hw, -hh, cos, sin);
+		setCorner(corners, 2, cx, cy, hw, hh, cos, sin);
+		setCorner(corners, 3, cx, cy, -hw, hh, cos, sin);
+	}
+
+	private static void setCorner(float[] corners, int i, float cx, float cy, float dx, float dy, float cos, float sin) {
+		corners[i * 2] = cx + dx * cos - dy * sin;
+		corners[i * 2 + 1] = cy + dx * sin + dy * cos;
+	}
+
+	/**
+	 * Prft zwei gedrehte Rechtecke mit dem Trennachsen-Verfahren auf berschneidung.
+	 *
+	 * @return true, wenn sich die Rechtecke berschneiden
+	 */
+	public static boolean intersects(float[] a, float[] b) {
+		return !isSeparated(a, b, 0) && !isSeparated(a, b, 1) && !isSeparated(b, a, 0) && !isSeparated(b, a, 1);
+	}
+
+	/**
+	 * Prft, ob die Normale der Kante edge (0 oder 1) von box die beiden Rechtecke trennt.
+	 */
+	private static boolean isSeparated(float[] box, float[] other, int edge) {
+		float ax = -(box[edge * 2 + 3] - box[edge * 2 + 1]);
+		float ay = box[edge * 2 + 2] - box[edge * 2];
+		float minA = Float.MAX_VALUE, maxA = -Float.MAX_VALUE;
+		float minB = Float.MAX_VALUE, maxB = -Float.MAX_VALUE;
+		for (int i = 0; i < 8; i += 2) {
+			float pa = box[i] * ax + box[i + 1] * ay;
+			float pb = other[i] * ax + other[i + 1] * ay;
+			minA = Math.min(minA, pa);
+			maxA = Math.max(maxA, pa);
+			minB = Math.min(minB, pb);
+			maxB = Math.max(maxB, pb);
+		}
+		return maxA < minB || maxB < minA;
+	}
+
+	/**
+	 * Prft ein gedrehtes Rechteck auf berschneidung mit einem Kreis.
+	 *
+	 * @return true, wenn sich Rechteck und Kreis berschneiden
+	 */
+	public static boolean intersectsCircle(float[] box, float cx, float cy, float radius) {
+		float centerX = (box[0] + box[4]) / 2;
+		float centerY = (box[1] + box[5]) / 2;
+		float ux = box[2] - box[0], uy = box[3] - box[1];
+		float vx = box[6] - box[0], vy = box[7] - box[1];
+		float lenU = (float) Math.sqrt(ux * ux + uy * uy);
+		float lenV = (float) Math.sqrt(vx * vx + vy * vy);
+		float dx = cx - centerX;
+		float dy = cy - centerY;
+		// Kreismittelpunkt in das lokale Koordinatensystem des Rechtecks bringen und auf das Rechteck begrenzen
+		float localX = (dx * ux + dy * uy) / lenU;
+		float localY = (dx * vx + dy * vy) / lenV;
+		float nearestX = Math.max(-lenU / 2, Math.min(lenU / 2, localX));
+		float nearestY = Math.max(-lenV / 2, Math.min(lenV / 2, localY));
+		float distX = localX - nearestX;
+		float distY = localY - nearestY;
+		return distX * distX + distY * distY < radius * radius;
+	}
+}
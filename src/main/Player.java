@@ -1,6 +1,5 @@
 package main;
 
-import java.awt.Point;
 import java.io.IOException;
 import java.util.Vector;
 
@@ -11,10 +10,6 @@ import main.powerup.PowerupShot;
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
-import org.newdawn.slick.geom.Rectangle;
-import org.newdawn.slick.geom.RoundedRectangle;
-import org.newdawn.slick.geom.Shape;
-import org.newdawn.slick.geom.Transform;
 import org.newdawn.slick.particles.ConfigurableEmitter;
 import org.newdawn.slick.particles.ParticleIO;
 import org.newdawn.slick.particles.ParticleSystem;
@@ -24,21 +19,36 @@ import utils.ResourceManager;
 import com.esotericsoftware.kryonet.Connection;
 
 /**
- * Die Klasse Player reprsentiert den Spieler bzw. seine "Schlange". Sie beinhaltet statisch alle Spieler, alle Connections, alle Punkte der jeweiligen Schlange, sowie alle relevanten Spielerinformationen.
+ * Die Klasse Player reprsentiert den Spieler bzw. seine "Schlange". Sie beinhaltet die Connection, alle Punkte der Schlange, sowie alle relevanten Spielerinformationen. Alle Spieler eines Spiels liegen in einem {@link Room}.
  * 
  * @author Adam Laszlo
  * 
  */
 public class Player {
-	private static Vector<Player> players = new Vector<Player>();
+	// damit die Schlange nicht in jedem Durchgang mit den vorherigen Punkten kollidiert,
+	// werden so viele der letzten eigenen Punkte ignoriert
+	static final int RECENT_POINTS = 5;
+	/**
+	 * Drehung pro Schritt beim Lenken. Der Client braucht sie fr die Vorhersage, siehe {@link #steer(float, int)}.
+	 */
+	public static final double STEER_ANGLE = .12;
+	public static final float DEFAULT_SPEED = 3;
+	private Room room = null;
+	private float[] headCorners = new float[8];
+	private float[] otherCorners = new float[8];
 	private Connection connection;
 	private PlayerProperties properties;
 	private PlayerPoint nextPoint;
+	private int indexedPoints = 0;
+	private int stampedPoints = 0;
 	private float angle = 70;
-	private float speed = 3;
+	private float speed = DEFAULT_SPEED;
 	private boolean dirLeft = false;
 	private boolean dirRight = false;
 	private boolean isReady = false;
+	// Sequenznummer der Eingabe des Clients, die im letzten Schritt gegolten hat
+	private int inputSequence = 0;
+	private int lastInput = 0;
 	private boolean alive = true;
 	private int dyingTimeout = 1000;
 	private int dyingInterval = 80;
@@ -48,6 +58,8 @@ public class Player {
 	
 	private int numBullets = 1;
 	private int maxBullets = 3;
+	// wird erst im nchsten Schritt abgefeuert, da die Eingaben nicht im Simulations-Thread ankommen
+	private boolean shotRequested = false;
 	
 	private float boostLevel = 0.4f;
 
@@ -68,7 +80,6 @@ public class Player {
 	public Player() {
 		properties = new PlayerProperties();
 		initPlayerPosition();
-		players.add(this);
 	}
 	
 	/**
@@ -78,20 +89,26 @@ public class Player {
 	 */
 	public Player(PlayerPoint p) {
 		properties = new PlayerProperties();
-		properties.getPoints().add(p);
+		properties.getTrail().add(p);
 //		players.add(this);
 	}
 
 	/**
-	 * Erstellt einen neuen Player und knpft ihn an eine Connection
+	 * Erstellt einen neuen Player, knpft ihn an eine Connection und fgt ihn einem Raum hinzu
 	 * 
 	 * @param connection
+	 * @param room
 	 */
-	public Player(Connection connection) {
+	public Player(Connection connection, Room room) {
 		this.connection = connection;
+		this.room = room;
 		properties = new PlayerProperties(connection.getID());
+		properties.setSlot(room.getFreeSlot());
 		initPlayerPosition();
-		players.add(this);
+		room.getPlayers().add(this);
+		if (ResourceManager.isHeadless()) {
+			return;
+		}
 		try {
 			particleSystem = new ParticleSystem("data/emitters/particle.tga", 1000);
 			boostEmitter = ParticleIO.loadEmitter("data/emitters/boostEmitter.xml");
@@ -113,10 +130,9 @@ public class Player {
 		} else {
 			angle = (float) Math.atan((middleY - y) / (double) (middleX - x));
 		}
-		properties.getPoints().add(new PlayerPoint(x, y, angle));
-		PlayerPoint pp = new PlayerPoint(x, y, angle);
-		properties.getPoints().add(pp);
-		nextPoint = pp;
+		properties.getTrail().add(x, y, angle);
+		properties.getTrail().add(x, y, angle);
+		nextPoint = new PlayerPoint(x, y, angle);
 	}
 
 	public void render(Graphics g) {
@@ -156,6 +172,12 @@ public class Player {
 		g.fillRect(81, 14, 149*boostLevel, 9);
 	}
 
+	/**
+	 * Ein Simulationsschritt des Spielers, unabhngig von der Darstellung.
+	 * 
+	 * @param delta
+	 *            - Lnge des Simulationsschritts in ms
+	 */
 	public void update(int delta) {
 		if (!alive){
 			if (dyingTimeout > 0){
@@ -174,6 +196,24 @@ public class Player {
 			}
 			return;
 		}
+		if (boost){
+			boostLevel -= 0.004f;
+			if (boostLevel < 0){
+				boostLevel = 0;
+			}
+		}
+	}
+
+	/**
+	 * Aktualisiert die Partikeleffekte. Wird im Gegensatz zu {@link #update(int)} in jedem Frame aufgerufen.
+	 * 
+	 * @param delta
+	 *            - ms seit letztem Frame
+	 */
+	public void updateEffects(int delta) {
+		if (!alive){
+			return;
+		}
 		boostEmitter.setPosition(nextPoint.x, nextPoint.y);
 		try {
 			particleSystem.update(delta);
@@ -194,18 +234,8 @@ public class Player {
 				wrappedUp = true;
 			}
 		}
-		if (boost){
-			boostLevel -= 0.004f;
-			if (boostLevel < 0){
-				boostLevel = 0;
-			}
-		}
 		for (int i = 0; i < bullets.size(); i++) {
-			Bullet b = bullets.get(i);
-			b.update(delta);
-			if (!b.isInsideScreen()) {
-				bullets.remove(b);
-			}
+			bullets.get(i).updateEffects(delta);
 		}
 	}
 
@@ -219,32 +249,98 @@ public class Player {
 		if (!alive){
 			return true;
 		}
+		inputSequence++;
 		computeNextPoint();
 		if (boost && boostLevel > 0) {
 			computeNextPoint();
 		}
+		fireRequestedShot();
 		return !checkCollision();
 	}
 
 	private void computeNextPoint() {
-		if (properties.getPoints().size() < 1){
+		Trail trail = properties.getTrail();
+		if (trail.isEmpty()){
 			initPlayerPosition();
 		}
-		Point lastPoint = properties.getPoints().lastElement();
-		int deltaX = (int) Math.round(Math.cos(angle) * speed);
-		int deltaY = (int) Math.round(Math.sin(angle) * speed);
+		int deltaX = stepX(angle, speed);
+		int deltaY = stepY(angle, speed);
 
-		int nextX = lastPoint.x + deltaX;
-		int nextY = lastPoint.y + deltaY;
+		int nextX = trail.getX(trail.lastIndex()) + deltaX;
+		int nextY = trail.getY(trail.lastIndex()) + deltaY;
 		if (dirLeft) {
-			angle -= .12;
+			angle = steer(angle, NetworkConstants.PLAYER_MOVE_LEFT);
 		} else if (dirRight) {
-
-			angle += .12;
+			angle = steer(angle, NetworkConstants.PLAYER_MOVE_RIGHT);
 		}
-		PlayerPoint comingPoint = new PlayerPoint(nextX, nextY, angle);
 		nextPoint = new PlayerPoint(nextX + deltaX, nextY + deltaY, angle);
-		properties.getPoints().add(comingPoint);
+		trail.add(nextX, nextY, angle);
+		indexNewPoints();
+	}
+
+	/**
+	 * Trgt alle noch nicht erfassten Punkte der Schlange in das Kollisionsraster ein.
+	 */
+	private void indexNewPoints() {
+		// z.B. der Bot im Hauptmen nimmt nicht am Spiel teil
+		if (room == null) {
+			return;
+		}
+		Trail trail = properties.getTrail();
+		for (; indexedPoints < trail.size(); indexedPoints++) {
+			if (trail.isActive(indexedPoints)) {
+				room.getCollisionGrid().insert(trail, indexedPoints);
+			}
+		}
+		stampCommittedPoints();
+	}
+
+	/**
+	 * Zeichnet im Bitmap-Modus alle Punkte in die Bitmap, die lter als die letzten {@link #RECENT_POINTS} sind. Die neueren Punkte fehlen absichtlich,
+	 * da die Bitmap nicht wei, zu welcher Schlange ein Pixel gehrt.
+	 */
+	private void stampCommittedPoints() {
+		OccupancyBitmap occupancy = room.getOccupancy();
+		if (occupancy == null) {
+			return;
+		}
+		Trail trail = properties.getTrail();
+		for (; stampedPoints < trail.size() - RECENT_POINTS; stampedPoints++) {
+			if (trail.isActive(stampedPoints)) {
+				trail.getCorners(stampedPoints, GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, otherCorners);
+				occupancy.stamp(otherCorners);
+			}
+		}
+	}
+
+	/**
+	 * Zeichnet alle Punkte neu in die (leere) Bitmap des Raums.
+	 */
+	void restamp() {
+		stampedPoints = 0;
+		stampCommittedPoints();
+	}
+
+	/**
+	 * Entfernt alle Punkte der Schlange aus dem Kollisionsraster.
+	 */
+	void unindexPoints() {
+		if (room == null) {
+			return;
+		}
+		Trail trail = properties.getTrail();
+		for (int i = 0; i < indexedPoints && i < trail.size(); i++) {
+			room.getCollisionGrid().remove(trail, i);
+		}
+		indexedPoints = 0;
+		if (room.getOccupancy() != null) {
+			for (int i = 0; i < stampedPoints && i < trail.size(); i++) {
+				if (trail.isActive(i)) {
+					room.eraseStamp(trail, i);
+				}
+			}
+		}
+		stampedPoints = 0;
 	}
 
 	/**
@@ -257,87 +353,103 @@ public class Player {
 		if (checkCollisionBounds()){
 			return true;
 		}
-		Image img = ResourceManager.getImage(properties.getImageKey());
-		for (int i = 0; i < players.size(); i++) {
-			Player other = players.get(i);
-			int end = other.getProperties().getPoints().size();
-			if (this == other) {
-				// damit die Schlange nicht in jedem Durchgang mit den vorherigen Punkten kollidiert,
-				// werden die letzten Punkte ignoriert, wenn die eigene Schlange geprft wird.
-				end -= 5;
+		// Spieler ohne Raum (z.B. der Bot im Hauptmen) kollidieren nur mit dem Rand
+		if (room == null) {
+			return false;
+		}
+		Trail trail = properties.getTrail();
+		int head = trail.lastIndex();
+		int headX = trail.getX(head);
+		int headY = trail.getY(head);
+		trail.getCorners(head, GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, headCorners);
+		boolean collided;
+		if (room.getOccupancy() != null) {
+			collided = checkCollisionBitmap();
+		} else {
+			collided = checkCollisionShapes(trail, headX, headY);
+		}
+		if (collided) {
+			return true;
+		}
+		checkCollisionPowerups();
+		return false;
+	}
+
+	/**
+	 * Prft den Kopf ber das Kollisionsraster gegen die umliegenden Punkte.
+	 *
+	 * @return true, wenn Kollision stattgefunden hat
+	 */
+	private boolean checkCollisionShapes(Trail trail, int headX, int headY) {
+		CollisionGrid collisionGrid = room.getCollisionGrid();
+		// ----- grobe Prfung -----
+		// nur die Punkte aus den Nachbarzellen des Kopfes kommen berhaupt in Frage
+		collisionGrid.query(headX, headY);
+		for (int j = 0; j < collisionGrid.getResultCount(); j++) {
+			Trail other = collisionGrid.getResultTrail(j);
+			int index = collisionGrid.getResultIndex(j);
+			if (!other.isActive(index) || (other == trail && index >= trail.size() - RECENT_POINTS)) {
+				continue;
 			}
-			// ----- grobe Prfung -----
-			for (int j = 0; j < end; j++) {
-				PlayerPoint p = other.getProperties().getPoints().get(j);
-				if (!p.isActive()) {
-					continue;
-				}
-				if (this.getProperties().getPoints().lastElement().distance(p) < 10) {
-					// ----- pixelgenaue Prfung -----
-					Shape rect = new Rectangle(p.x, p.y, img.getWidth(), img.getHeight());
-					rect = rect.transform(Transform.createRotateTransform(p.getAngle(), rect.getCenterX(), rect.getCenterY()));
-					Shape rect2 = new Rectangle(this.getProperties().getPoints().lastElement().x, properties.getPoints().lastElement().y, img.getWidth(), img.getHeight());
-					rect2 = rect2.transform(Transform.createRotateTransform(this.getProperties().getPoints().lastElement().getAngle(), rect2.getCenterX(), rect2.getCenterY()));
-					if (rect.intersects(rect2)) {
-						return true;
-					}
+			if (other.distance(index, headX, headY) < 10) {
+				// ----- pixelgenaue Prfung -----
+				other.getCorners(index, GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, otherCorners);
+				if (OrientedBox.intersects(otherCorners, headCorners)) {
+					return true;
 				}
 			}
-			checkCollisionBullets();
-			checkCollisionPowerups();
 		}
 		return false;
 	}
 
-	private boolean checkCollisionBounds() {
-		Point lastPoint = properties.getPoints().lastElement();
-		if (lastPoint.x < 0 || lastPoint.x > GameConstants.APP_WIDHT || lastPoint.y < 0 || lastPoint.y > GameConstants.APP_HEIGHT){
+	/**
+	 * Prft die Pixel unter dem Kopf in der Bitmap. Die letzten Punkte der anderen Schlangen sind noch nicht in der Bitmap und werden einzeln geprft.
+	 *
+	 * @return true, wenn Kollision stattgefunden hat
+	 */
+	private boolean checkCollisionBitmap() {
+		Vector<Player> players = room.getPlayers();
+		if (room.getOccupancy().isOccupied(headCorners)) {
 			return true;
 		}
-		return false;
-	}
-
-	private void checkCollisionBullets() {
 		for (int i = 0; i < players.size(); i++) {
-			Player p = players.get(i);
-			for (int j = 0; j < p.getBullets().size(); j++) {
-				Bullet b = p.getBullets().get(j);
-				int numPoints = p.getProperties().getPoints().size();
-				// falls die Schlange weniger als 10 Elemente hat, wird keine Kollision erkannt
-				if (numPoints < 10) {
+			Player other = players.get(i);
+			if (other == this) {
+				continue;
+			}
+			Trail trail = other.getProperties().getTrail();
+			for (int j = Math.max(trail.size() - RECENT_POINTS, 0); j < trail.size(); j++) {
+				if (!trail.isActive(j)) {
 					continue;
 				}
-				for (int k = 0; k < numPoints - 10; k++) {
-					PlayerPoint pp = p.getProperties().getPoints().get(k);
-					if (!pp.isActive()) {
-						continue;
-					}
-					if (b.getPosition().distance(pp) < 13) {
-						// Schuss kollidiert mit Schlange
-						p.getBullets().remove(b);
-						for (int l = -7; l < 7; l++) {
-							if (p.getProperties().getPoints().size() > k + l && k + l > 0) {
-								p.getProperties().getPoints().get(k + l).setActive(false);
-							}
-						}
-						initExplosion(b.getPosition());
-						return;
-					}
+				trail.getCorners(j, GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, otherCorners);
+				if (OrientedBox.intersects(otherCorners, headCorners)) {
+					return true;
 				}
 			}
 		}
+		return false;
+	}
+
+	private boolean checkCollisionBounds() {
+		Trail trail = properties.getTrail();
+		int x = trail.getX(trail.lastIndex());
+		int y = trail.getY(trail.lastIndex());
+		if (x < 0 || x > GameConstants.APP_WIDHT || y < 0 || y > GameConstants.APP_HEIGHT){
+			return true;
+		}
+		return false;
 	}
 
 	private void checkCollisionPowerups() {
-		Image img = ResourceManager.getImage(properties.getImageKey());
-		PlayerPoint pp = properties.getPoints().lastElement();
-		Shape rect = new Rectangle(pp.x, pp.y, img.getWidth(), img.getHeight());
-		rect = rect.transform(Transform.createRotateTransform(pp.getAngle(), rect.getCenterX(), rect.getCenterY()));
-		for (int j = 0; j < Powerup.getPowerups().size(); j++) {
-			Powerup pu = Powerup.getPowerups().get(j);
-			Shape circle = new RoundedRectangle(pu.getPosition().x - pu.getImage().getWidth()/2, pu.getPosition().y - pu.getImage().getHeight()/2, pu.getImage().getWidth(), pu.getImage().getHeight(), pu.getImage().getWidth()/2-1);
-			if (rect.intersects(circle)) {
-				Powerup.getPowerups().remove(pu);
+		Trail trail = properties.getTrail();
+		trail.getCorners(trail.lastIndex(), GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, headCorners);
+		Vector<Powerup> powerups = room.getPowerups();
+		for (int j = 0; j < powerups.size(); j++) {
+			Powerup pu = powerups.get(j);
+			if (OrientedBox.intersectsCircle(headCorners, pu.getPosition().x, pu.getPosition().y, GameConstants.POWERUP_SIZE / 2)) {
+				room.removePowerup(pu, properties.getSlot());
+				j--;
 				if (pu instanceof PowerupBoost){
 					boostLevel += .5f;
 					if (boostLevel > 1){
@@ -352,7 +464,11 @@ public class Player {
 		}
 	}
 
-	private void initExplosion(PlayerPoint point) {
+	void initExplosion(PlayerPoint point) {
+		// ohne Partikeleffekte, z.B. auf dem dedizierten Server
+		if (explosionSystem == null) {
+			return;
+		}
 		if (wrappedUp) {
 			try {
 				explosionSystem = ParticleIO.loadConfiguredSystem("data/emitters/explosionSystem.xml");
@@ -364,6 +480,73 @@ public class Player {
 		explosionSystem.setPosition(point.x, point.y);
 	}
 
+	/**
+	 * Bewegung in x-Richtung fr einen Schritt. Server und Client (fr die Vorhersage) rechnen damit gleich.
+	 */
+	public static int stepX(float angle, float speed) {
+		return (int) Math.round(Math.cos(angle) * speed);
+	}
+
+	/**
+	 * @see Player#stepX(float, float)
+	 */
+	public static int stepY(float angle, float speed) {
+		return (int) Math.round(Math.sin(angle) * speed);
+	}
+
+	/**
+	 * @param direction
+	 *            - NetworkConstants.PLAYER_MOVE_LEFT, PLAYER_MOVE_RIGHT oder PLAYER_MOVE_STRAIGHT
+	 * @return der Winkel nach einem Schritt in diese Richtung
+	 */
+	public static float steer(float angle, int direction) {
+		if (direction == NetworkConstants.PLAYER_MOVE_LEFT) {
+			return (float) (angle - STEER_ANGLE);
+		} else if (direction == NetworkConstants.PLAYER_MOVE_RIGHT) {
+			return (float) (angle + STEER_ANGLE);
+		}
+		return angle;
+	}
+
+	/**
+	 * bernimmt eine Eingabe des Clients. Da sie per UDP kommt, werden veraltete Eingaben ignoriert. Der Client zhlt seine Sequenznummer in jedem
+	 * Schritt hoch, daher tut das der Server in {@link #move()} auch, solange keine neue Eingabe kommt.
+	 * 
+	 * @param sequence
+	 *            - Sequenznummer des Schritts auf dem Client, fr den die Eingabe gilt
+	 * @param bits
+	 *            - Bitfeld aus NetworkConstants.INPUT_LEFT, INPUT_RIGHT, INPUT_BOOST und INPUT_SHOOT
+	 */
+	public void applyInput(int sequence, int bits) {
+		if (sequence <= lastInput) {
+			return;
+		}
+		lastInput = sequence;
+		// wird im nchsten Schritt wieder auf sequence erhht
+		inputSequence = sequence - 1;
+		if ((bits & NetworkConstants.INPUT_LEFT) != 0) {
+			steerLeft();
+		} else if ((bits & NetworkConstants.INPUT_RIGHT) != 0) {
+			steerRight();
+		} else {
+			steerStraight();
+		}
+		boolean b = (bits & NetworkConstants.INPUT_BOOST) != 0;
+		if (b != boost) {
+			setBoost(b);
+		}
+		if ((bits & NetworkConstants.INPUT_SHOOT) != 0) {
+			shoot();
+		}
+	}
+
+	/**
+	 * @return Sequenznummer der Eingabe, die im letzten Schritt gegolten hat
+	 */
+	public int getInputSequence() {
+		return inputSequence;
+	}
+
 	public void steerLeft() {
 		dirLeft = true;
 		dirRight = false;
@@ -381,14 +564,31 @@ public class Player {
 
 	public void shoot() {
 		if (alive){
-			if (numBullets > 0){
+			shotRequested = true;
+		}
+	}
+
+	private void fireRequestedShot() {
+		if (!shotRequested) {
+			return;
+		}
+		shotRequested = false;
+		if (numBullets > 0){
+			if (room != null) {
+				room.addBullet(this, new Bullet(nextPoint));
+			} else {
 				bullets.add(new Bullet(nextPoint));
-				numBullets--;
 			}
+			numBullets--;
 		}
 	}
 
 	public void setBoost(boolean b) {
+		boost = b;
+		// ohne Partikeleffekte, z.B. auf dem dedizierten Server
+		if (boostEmitter == null) {
+			return;
+		}
 		if (!b || boostLevel <= 0) {
 			if (!isWrappedUp && boostEmitter.isEnabled()) {
 				boostEmitter.wrapUp();
@@ -409,7 +609,6 @@ public class Player {
 
 			}
 		}
-		boost = b;
 	}
 	
 	public void die() {
@@ -420,35 +619,6 @@ public class Player {
 		alive = false;
 	}
 	
-	/**
-	 * Entfernt Player anhand der connectionID aus dem Vector.
-	 * @param connectionID
-	 * @since 13.04.2011 von Adam Laszlo
-	 */
-	public static void remove(int connectionID){
-		for (int i = 0; i < players.size(); i++){
-			if (players.get(i).getConnection().getID() == connectionID){
-				players.remove(i);
-				return;
-			}
-		}
-	}
-	
-	/**
-	 * Holt ein Player anhand der connectionID aus dem Vector.
-	 * @param connectionID
-	 * @return Player
-	 * @since 13.04.2011 von Adam Laszlo
-	 */
-	public static Player getPlayer(int connectionID){
-		for (int i = 0; i < players.size(); i++){
-			if (players.get(i).getConnection().getID() == connectionID){
-				return players.get(i);
-			}
-		}
-		return null;
-	}
-
 	// ------------------- Getter & Setter ---------------------
 
 	public boolean isBoost() {
@@ -483,8 +653,8 @@ public class Player {
 		this.isReady = isReady;
 	}
 
-	public static Vector<Player> getPlayers() {
-		return players;
+	public Room getRoom() {
+		return room;
 	}
 
 	public PlayerProperties getProperties() {
@@ -499,15 +669,13 @@ public class Player {
 		return alive;
 	}
 
+	/**
+	 * bernimmt die Properties unverndert, auch Connection und Slot. Die vergibt der Server, er selbst bernimmt vom Client daher nur die Angaben aus
+	 * {@link PlayerProperties#copyMetadata(PlayerProperties)}.
+	 */
 	public void setProperties(PlayerProperties properties) {
+		unindexPoints();
 		this.properties = properties;
 	}
-	
-	public static Vector<PlayerProperties> getAllPlayerProperties(){
-		Vector<PlayerProperties> props = new Vector<PlayerProperties>();
-		for (int i = 0; i < players.size(); i++){
-			props.add(players.get(i).getProperties());
-		}
-		return props;
-	}
+
 }
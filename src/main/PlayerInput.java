@@ -0,0 +1,88 @@
+package main;
+
+import java.nio.ByteBuffer;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Die Eingaben eines Clients. Jede Eingabe besteht aus der Sequenznummer des Schritts auf dem Client und einem Bitfeld aus
+ * NetworkConstants.INPUT_LEFT, INPUT_RIGHT, INPUT_BOOST und INPUT_SHOOT.
+ *
+ * Der Client schickt nur, wenn sich die Eingabe ndert oder als Heartbeat, und wiederholt dabei jedes Mal die letzten {@link #REDUNDANCY}
+ * Eingaben. Geht ein Paket verloren, kommt die Eingabe also mit dem nchsten an. Der Server erkennt bereits angewendete Eingaben an der
+ * Sequenznummer.
+ *
+ * Format: Anzahl, Sequenznummer der neuesten Eingabe, und pro Eingabe (lteste zuerst): Abstand zur neuesten Sequenznummer, Bitfeld.
+ */
+public class PlayerInput implements CustomSerialization {
+	public static final int REDUNDANCY = 4;
+
+	private int count = 0;
+	private int[] sequence = new int[REDUNDANCY];
+	private byte[] bits = new byte[REDUNDANCY];
+
+	/**
+	 * Hngt eine neue Eingabe an. Ist die Liste voll, fllt die lteste heraus.
+	 */
+	public void add(int sequence, int bits) {
+		if (count == REDUNDANCY) {
+			System.arraycopy(this.sequence, 1, this.sequence, 0, REDUNDANCY - 1);
+			System.arraycopy(this.bits, 1, this.bits, 0, REDUNDANCY - 1);
+			count--;
+		}
+		this.sequence[count] = sequence;
+		this.bits[count] = (byte) bits;
+		count++;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getSequence(int index) {
+		return sequence[index];
+	}
+
+	public int getBits(int index) {
+		return bits[index];
+	}
+
+	/**
+	 * @return das Bitfeld der neuesten Eingabe oder 0, wenn es noch keine gibt
+	 */
+	public int getLastBits() {
+		return count == 0 ? 0 : bits[count - 1];
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		buffer.put((byte) count);
+		if (count == 0) {
+			return;
+		}
+		int newest = sequence[count - 1];
+		IntSerializer.put(buffer, newest, true);
+		for (int i = 0; i < count; i++) {
+			IntSerializer.put(buffer, newest - sequence[i], true);
+			buffer.put(bits[i]);
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		count = 0;
+		int entries = buffer.get();
+		if (entries == 0) {
+			return;
+		}
+		int newest = IntSerializer.get(buffer, true);
+		for (int i = 0; i < entries; i++) {
+			int distance = IntSerializer.get(buffer, true);
+			add(newest - distance, buffer.get());
+		}
+	}
+}
@@ -1,7 +1,5 @@
 package main;
 
-import java.util.Vector;
-
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
@@ -18,7 +16,10 @@ import utils.ResourceManager;
  */
 public class PlayerProperties {
 	private int connectionID;
-	private Vector<PlayerPoint> points = new Vector<PlayerPoint>();
+	private int slot = -1;
+	// wird nicht mit bertragen, die Punkte kommen ber Snapshot, TrailRepair und FullState. volatile, da der Client die Schlange im
+	// Netzwerk-Thread austauscht und sie im Render-Thread gezeichnet wird
+	private transient volatile Trail trail = new Trail();
 	private String name = "UNKNOWN";
 	private int score = 0;
 	private int colorCode = 0xffffff;
@@ -35,23 +36,42 @@ public class PlayerProperties {
 	}
 
 	public void render(Graphics g) {
-		Image tmpImg = null;
+		render(g, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Zeichnet nur die ersten count Punkte der Schlange, z.B. wenn der Kopf verzgert gezeichnet wird. Die Schlange ist dabei gesperrt, damit der
+	 * Netzwerk-Thread des Clients sie nicht gleichzeitig erweitert.
+	 */
+	public void render(Graphics g, int count) {
+		Image tmpImg = ResourceManager.getImage(imageKey).copy();
 		Color color = new Color(colorCode);
-		for (int i = 0; i < points.size(); i++) {
-			if (points.get(i).isActive()) {
-				tmpImg = ResourceManager.getImage(imageKey).copy();
-				tmpImg.setRotation((float) Math.toDegrees(points.get(i).getAngle()));
-				g.drawImage(tmpImg, points.get(i).x - tmpImg.getWidth() / 2, points.get(i).y - tmpImg.getHeight() / 2, color);
+		Trail trail = this.trail;
+		synchronized (trail) {
+			for (int i = 0; i < Math.min(count, trail.size()); i++) {
+				if (trail.isActive(i)) {
+					tmpImg.setRotation((float) Math.toDegrees(trail.getAngle(i)));
+					g.drawImage(tmpImg, trail.getX(i) - tmpImg.getWidth() / 2, trail.getY(i) - tmpImg.getHeight() / 2, color);
+				}
 			}
 		}
 	}
 
-	public Vector<PlayerPoint> getPoints() {
-		return points;
+	/**
+	 * Zeichnet den Kopf an einer Position, die nicht in der Schlange liegt, z.B. zwischen zwei Punkten interpoliert.
+	 */
+	public void renderHead(Graphics g, float x, float y, float angle) {
+		Image tmpImg = ResourceManager.getImage(imageKey).copy();
+		tmpImg.setRotation((float) Math.toDegrees(angle));
+		g.drawImage(tmpImg, x - tmpImg.getWidth() / 2, y - tmpImg.getHeight() / 2, new Color(colorCode));
 	}
 
-	public void setPoints(Vector<PlayerPoint> points) {
-		this.points = points;
+	public Trail getTrail() {
+		return trail;
+	}
+
+	public void setTrail(Trail trail) {
+		this.trail = trail;
 	}
 
 	public String getName() {
@@ -74,6 +94,15 @@ public class PlayerProperties {
 		return imageKey;
 	}
 
+	/**
+	 * bernimmt die Angaben, die ein Spieler selbst festlegt: Name, Farbe und Bild. Connection, Slot, Punktestand und Schlange bleiben.
+	 */
+	public void copyMetadata(PlayerProperties properties) {
+		name = properties.name;
+		colorCode = properties.colorCode;
+		imageKey = properties.imageKey;
+	}
+
 	public int getColorCode() {
 		return colorCode;
 	}
@@ -90,4 +119,15 @@ public class PlayerProperties {
 		this.connectionID = connectionID;
 	}
 
+	/**
+	 * @return die Nummer des Spielers in seinem Raum, ber die er in {@link Snapshot}s angesprochen wird
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
 }
@@ -0,0 +1,108 @@
+package main;
+
+import java.nio.ByteBuffer;
+
+import main.powerup.Powerup;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Eine nderung an den Powerups eines Raums. Nur der Server lsst Powerups erscheinen und verschwinden, die Clients bauen aus diesen Ereignissen
+ * ihre Kopie auf. Jedes Powerup wird ber seine ID angesprochen, die der {@link Room} vergibt.
+ *
+ * Format: Art, tick, ID, bei SPAWN zustzlich Typ, x, y, bei PICKUP der slot des Spielers.
+ */
+public class PowerupEvent implements CustomSerialization {
+	public static final int SPAWN = 0;
+	public static final int PICKUP = 1;
+	public static final int EXPIRE = 2;
+
+	private int kind;
+	private int tick;
+	private int id;
+	private int type;
+	private int x, y;
+	private int slot = -1;
+
+	public PowerupEvent() {
+	}
+
+	/**
+	 * @param kind
+	 *            - SPAWN, PICKUP oder EXPIRE
+	 * @param slot
+	 *            - bei PICKUP der Spieler, der das Powerup eingesammelt hat
+	 */
+	public PowerupEvent(int kind, Powerup powerup, int slot) {
+		this.kind = kind;
+		id = powerup.getID();
+		type = powerup.getType();
+		x = powerup.getPosition().x;
+		y = powerup.getPosition().y;
+		this.slot = slot;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return der Simulationsschritt, in dem das Ereignis stattfand
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	public void setTick(int tick) {
+		this.tick = tick;
+	}
+
+	public int getID() {
+		return id;
+	}
+
+	/**
+	 * Erzeugt auf dem Client die Kopie des Powerups, nur fr SPAWN.
+	 */
+	public Powerup createPowerup() {
+		Powerup powerup = Powerup.create(type, x, y);
+		powerup.setID(id);
+		return powerup;
+	}
+
+	public int getSlot() {
+		return slot;
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		buffer.put((byte) kind);
+		IntSerializer.put(buffer, tick, true);
+		IntSerializer.put(buffer, id, true);
+		if (kind == SPAWN) {
+			buffer.put((byte) type);
+			IntSerializer.put(buffer, x, false);
+			IntSerializer.put(buffer, y, false);
+		} else if (kind == PICKUP) {
+			buffer.put((byte) slot);
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		kind = buffer.get();
+		tick = IntSerializer.get(buffer, true);
+		id = IntSerializer.get(buffer, true);
+		if (kind == SPAWN) {
+			type = buffer.get();
+			x = IntSerializer.get(buffer, false);
+			y = IntSerializer.get(buffer, false);
+		} else if (kind == PICKUP) {
+			slot = buffer.get();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package main;
+
+import java.util.Vector;
+
+import main.powerup.Powerup;
+
+/**
+ * Ein Raum enthlt den kompletten Zustand eines laufenden Spiels: die Spieler, die Powerups und die Strukturen fr die Kollisionsprfung. Da nichts
+ * davon statisch ist, kann ein Server beliebig viele Rume gleichzeitig betreiben.
+ */
+public class Room {
+	private int id;
+	private Vector<Player> players = new Vector<Player>();
+	private Vector<Powerup> powerups = new Vector<Powerup>();
+	private int nextPowerupID = 0;
+	// noch nicht an die Clients verschickte nderungen der Powerups
+	private Vector<PowerupEvent> powerupEvents = new Vector<PowerupEvent>();
+	private int nextBulletID = 0;
+	private Vector<BulletEvent> bulletEvents = new Vector<BulletEvent>();
+	private CollisionGrid collisionGrid = new CollisionGrid(GameConstants.APP_WIDHT, GameConstants.APP_HEIGHT);
+	private int collisionMode = GameConstants.COLLISION_MODE_SHAPES;
+	private OccupancyBitmap occupancy = null;
+	private float[] corners = new float[8];
+
+	public Room(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Whlt aus, wie die Kollision der Schlangen geprft wird. Beim Wechsel auf die Bitmap wird diese aus den bestehenden Schlangen aufgebaut.
+	 *
+	 * @param mode
+	 *            - GameConstants.COLLISION_MODE_SHAPES oder GameConstants.COLLISION_MODE_BITMAP
+	 */
+	public void setCollisionMode(int mode) {
+		collisionMode = mode;
+		if (mode == GameConstants.COLLISION_MODE_BITMAP) {
+			occupancy = new OccupancyBitmap(GameConstants.APP_WIDHT, GameConstants.APP_HEIGHT);
+			for (int i = 0; i < players.size(); i++) {
+				players.get(i).restamp();
+			}
+		} else {
+			occupancy = null;
+		}
+	}
+
+	/**
+	 * Lscht einen Punkt aus der Bitmap. Da sich die Pixel mit anderen Punkten berschneiden knnen, werden die benachbarten Punkte danach neu
+	 * gezeichnet.
+	 */
+	void eraseStamp(Trail trail, int index) {
+		trail.getCorners(index, GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, corners);
+		occupancy.erase(corners);
+		collisionGrid.query(trail.getX(index), trail.getY(index));
+		for (int i = 0; i < collisionGrid.getResultCount(); i++) {
+			Trail other = collisionGrid.getResultTrail(i);
+			int otherIndex = collisionGrid.getResultIndex(i);
+			if (other.isActive(otherIndex) && otherIndex < other.size() - Player.RECENT_POINTS) {
+				other.getCorners(otherIndex, GameConstants.TRAIL_WIDTH, GameConstants.TRAIL_HEIGHT, corners);
+				occupancy.stamp(corners);
+			}
+		}
+	}
+
+	/**
+	 * Sucht den kleinsten Slot, der von keinem Spieler im Raum belegt ist.
+	 *
+	 * @return Slot fr einen neuen Spieler
+	 */
+	public int getFreeSlot() {
+		int slot = 0;
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getProperties().getSlot() == slot) {
+				slot++;
+				i = -1;
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * Entfernt Player anhand der connectionID aus dem Raum.
+	 *
+	 * @param connectionID
+	 */
+	public void removePlayer(int connectionID) {
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getConnection().getID() == connectionID) {
+				Player p = players.remove(i);
+				p.unindexPoints();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Holt ein Player anhand der connectionID aus dem Raum.
+	 *
+	 * @param connectionID
+	 * @return Player
+	 */
+	public Player getPlayer(int connectionID) {
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getConnection().getID() == connectionID) {
+				return players.get(i);
+			}
+		}
+		return null;
+	}
+
+	public Vector<PlayerProperties> getAllPlayerProperties() {
+		Vector<PlayerProperties> props = new Vector<PlayerProperties>();
+		for (int i = 0; i < players.size(); i++) {
+			props.add(players.get(i).getProperties());
+		}
+		return props;
+	}
+
+	/**
+	 * Lsst ein Powerup erscheinen. Es bekommt eine neue ID, die Clients erfahren davon ber ein {@link PowerupEvent}.
+	 */
+	public void addPowerup(Powerup powerup) {
+		powerup.setID(nextPowerupID++);
+		powerups.add(powerup);
+		powerupEvents.add(new PowerupEvent(PowerupEvent.SPAWN, powerup, -1));
+	}
+
+	/**
+	 * Entfernt ein eingesammeltes oder abgelaufenes Powerup.
+	 * 
+	 * @param slot
+	 *            - der Spieler, der es eingesammelt hat, oder -1, wenn es abgelaufen ist
+	 */
+	public void removePowerup(Powerup powerup, int slot) {
+		powerups.remove(powerup);
+		powerupEvents.add(new PowerupEvent(slot == -1 ? PowerupEvent.EXPIRE : PowerupEvent.PICKUP, powerup, slot));
+	}
+
+	/**
+	 * @return die nderungen an den Powerups seit dem letzten Aufruf
+	 */
+	public Vector<PowerupEvent> takePowerupEvents() {
+		Vector<PowerupEvent> events = powerupEvents;
+		powerupEvents = new Vector<PowerupEvent>();
+		return events;
+	}
+
+	/**
+	 * Feuert einen Schuss ab. Er bekommt eine neue ID, die Clients erfahren davon ber ein {@link BulletEvent}.
+	 */
+	public void addBullet(Player shooter, Bullet bullet) {
+		bullet.setID(nextBulletID++);
+		shooter.getBullets().add(bullet);
+		bulletEvents.add(new BulletEvent(bullet, shooter.getProperties().getSlot()));
+	}
+
+	/**
+	 * Ein Schuss hat einen Punkt getroffen: um diesen herum wird ein Loch in die Schlange geschossen.
+	 *
+	 * @param slot
+	 *            - der Spieler, dem die Schlange gehrt
+	 */
+	public void bulletHit(Bullet bullet, int slot, Trail trail, int index) {
+		for (int i = Math.max(index - Bullet.HOLE_SIZE, 1); i < Math.min(index + Bullet.HOLE_SIZE, trail.size()); i++) {
+			if (trail.isActive(i)) {
+				trail.setActive(i, false);
+				collisionGrid.remove(trail, i);
+				if (occupancy != null) {
+					eraseStamp(trail, i);
+				}
+			}
+		}
+		bulletEvents.add(new BulletEvent(bullet, slot, index));
+	}
+
+	/**
+	 * @return die Schsse und Treffer seit dem letzten Aufruf
+	 */
+	public Vector<BulletEvent> takeBulletEvents() {
+		Vector<BulletEvent> events = bulletEvents;
+		bulletEvents = new Vector<BulletEvent>();
+		return events;
+	}
+
+	// ------------------- Getter & Setter ---------------------
+
+	public int getID() {
+		return id;
+	}
+
+	public Vector<Player> getPlayers() {
+		return players;
+	}
+
+	public Vector<Powerup> getPowerups() {
+		return powerups;
+	}
+
+	public CollisionGrid getCollisionGrid() {
+		return collisionGrid;
+	}
+
+	public OccupancyBitmap getOccupancy() {
+		return occupancy;
+	}
+
+	public int getCollisionMode() {
+		return collisionMode;
+	}
+}
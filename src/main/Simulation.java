@@ -0,0 +1,226 @@
+package main;
+
+import java.util.Random;
+import java.util.Vector;
+
+import main.powerup.Powerup;
+
+/**
+ * Die eigentliche Spiellogik des Servers. Die Simulation luft in festen Schritten (Standard: {@link GameConstants#SIMULATION_TICK} ms), unabhngig davon, wie
+ * oft und in welchem Abstand {@link #update(int)} aufgerufen wird. Die Zeit zwischen zwei Aufrufen wird gesammelt und in ganzen Schritten abgearbeitet.
+ *
+ * Die Klasse zeichnet nichts und kennt keine Partikeleffekte, damit sie auch ohne Fenster (und in Tests) benutzt werden kann.
+ */
+public class Simulation {
+	/**
+	 * Wird nach jedem Simulationsschritt benachrichtigt, z.B. um die neuen Koordinaten zu verschicken.
+	 */
+	public interface TickListener {
+		/**
+		 * Vor jedem Schritt, z.B. um die Eingaben anzuwenden, die seit dem letzten Schritt angekommen sind.
+		 */
+		public void tickStarted(Simulation simulation);
+
+		public void ticked(Simulation simulation);
+	}
+
+	// nach einer langen Pause (z.B. GC) wird nicht beliebig viel nachgeholt
+	private static final int MAX_TICKS_PER_UPDATE = 5;
+	// so viele der neuesten Punkte kann der Schtze nicht selbst treffen
+	private static final int OWN_TRAIL_IGNORED = 10;
+
+	private Room room;
+	private TickListener listener = null;
+	private Random random;
+	private int tickLength;
+	private int accumulator = 0;
+	private long tick = 0;
+	private double spawnProbability = 0;
+
+	// Ergebnis von findBulletHit()
+	private Trail hitTrail;
+	private int hitIndex;
+
+	/**
+	 * @param room
+	 *            - der Raum, dessen Spieler und Powerups simuliert werden
+	 */
+	public Simulation(Room room) {
+		this(room, new Random());
+	}
+
+	/**
+	 * @param random
+	 *            - Zufallsgenerator, mit festem Seed ist die Simulation wiederholbar
+	 */
+	public Simulation(Room room, Random random) {
+		this(room, random, GameConstants.SIMULATION_TICK);
+	}
+
+	/**
+	 * @param tickLength
+	 *            - Lnge eines Simulationsschritts in ms
+	 */
+	public Simulation(Room room, Random random, int tickLength) {
+		this.room = room;
+		this.random = random;
+		this.tickLength = tickLength;
+	}
+
+	/**
+	 * Sammelt die vergangene Zeit und fhrt so viele Simulationsschritte aus, wie hineinpassen.
+	 *
+	 * @param delta
+	 *            - ms seit letztem Aufruf
+	 * @return Anzahl der ausgefhrten Schritte
+	 */
+	public int update(int delta) {
+		accumulator += delta;
+		int ticks = 0;
+		while (accumulator >= tickLength) {
+			accumulator -= tickLength;
+			if (ticks == MAX_TICKS_PER_UPDATE) {
+				accumulator = 0;
+				break;
+			}
+			tick();
+			ticks++;
+		}
+		return ticks;
+	}
+
+	/**
+	 * Fhrt genau einen Simulationsschritt aus.
+	 */
+	public void tick() {
+		if (listener != null) {
+			listener.tickStarted(this);
+		}
+		Vector<Player> players = room.getPlayers();
+		for (int i = 0; i < players.size(); i++) {
+			Player p = players.get(i);
+			p.update(tickLength);
+			if (!p.move()) {
+				p.die();
+			}
+		}
+		updateBullets();
+		spawnPowerups();
+		Vector<Powerup> powerups = room.getPowerups();
+		for (int i = 0; i < powerups.size(); i++) {
+			Powerup pu = powerups.get(i);
+			pu.update(tickLength);
+			if (pu.isExpired()) {
+				room.removePowerup(pu, -1);
+				i--;
+			}
+		}
+		tick++;
+		if (listener != null) {
+			listener.ticked(this);
+		}
+	}
+
+	/**
+	 * Bewegt alle Schsse um einen Schritt und prft ihren Weg auf Treffer. Geprft wird die ganze Strecke seit dem letzten Schritt, nicht nur die
+	 * neue Position, sonst fliegen Schsse durch dnne Stellen der Schlangen hindurch.
+	 */
+	private void updateBullets() {
+		Vector<Player> players = room.getPlayers();
+		for (int i = 0; i < players.size(); i++) {
+			Player p = players.get(i);
+			Vector<Bullet> bullets = p.getBullets();
+			for (int j = 0; j < bullets.size(); j++) {
+				Bullet b = bullets.get(j);
+				int fromX = b.getPosition().x;
+				int fromY = b.getPosition().y;
+				b.move();
+				if (findBulletHit(p, fromX, fromY, b.getPosition().x, b.getPosition().y)) {
+					room.bulletHit(b, getSlot(hitTrail), hitTrail, hitIndex);
+					p.initExplosion(b.getPosition());
+					bullets.remove(j--);
+				} else if (!b.isInsideScreen()) {
+					bullets.remove(j--);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sucht ber das Kollisionsraster den ersten Punkt auf der Strecke, der nher als {@link Bullet#HIT_RADIUS} liegt. Die letzten Punkte des
+	 * Schtzen zhlen nicht, sonst trfe er sich beim Abfeuern selbst. Das Ergebnis steht in {@link #hitTrail} und {@link #hitIndex}.
+	 *
+	 * @return true, wenn ein Punkt getroffen wurde
+	 */
+	private boolean findBulletHit(Player shooter, int x0, int y0, int x1, int y1) {
+		CollisionGrid collisionGrid = room.getCollisionGrid();
+		collisionGrid.query(x0, y0, x1, y1);
+		Trail own = shooter.getProperties().getTrail();
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		float length = dx * dx + dy * dy;
+		float first = 2;
+		for (int k = 0; k < collisionGrid.getResultCount(); k++) {
+			Trail trail = collisionGrid.getResultTrail(k);
+			int index = collisionGrid.getResultIndex(k);
+			if (trail == own && index >= own.size() - OWN_TRAIL_IGNORED) {
+				continue;
+			}
+			// der Punkt der Strecke, der dem Punkt der Schlange am nchsten liegt
+			float px = trail.getX(index) - x0;
+			float py = trail.getY(index) - y0;
+			float t = length == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / length));
+			float distX = px - t * dx;
+			float distY = py - t * dy;
+			if (distX * distX + distY * distY < Bullet.HIT_RADIUS * Bullet.HIT_RADIUS && t < first) {
+				first = t;
+				hitTrail = trail;
+				hitIndex = index;
+			}
+		}
+		return first <= 1;
+	}
+
+	private int getSlot(Trail trail) {
+		Vector<Player> players = room.getPlayers();
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getProperties().getTrail() == trail) {
+				return players.get(i).getProperties().getSlot();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Lsst zufllig ein Powerup erscheinen. Die Wahrscheinlichkeit steigt mit der vergangenen Zeit.
+	 */
+	private void spawnPowerups() {
+		spawnProbability += Powerup.SPAWN_PROBABILITY_PER_MS * tickLength;
+		if (random.nextDouble() < spawnProbability) {
+			spawnProbability = 0;
+			room.addPowerup(Powerup.createRandom(random));
+		}
+	}
+
+	/**
+	 * @return Anzahl der bisher ausgefhrten Schritte
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return ms, bis der nchste Schritt fllig ist
+	 */
+	public int getTimeUntilNextTick() {
+		return Math.max(tickLength - accumulator, 0);
+	}
+
+	public int getTickLength() {
+		return tickLength;
+	}
+
+	public void setTickListener(TickListener listener) {
+		this.listener = listener;
+	}
+}
@@ -0,0 +1,274 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Die neuen Punkte aller Spieler eines Raums nach einem Simulationsschritt. Ersetzt die HashMap&lt;Integer, PlayerPoint&gt;, die Kryo mit
+ * Klassen-IDs und Integer-Objekten bertragen hat.
+ *
+ * Ein Spieler wird ber seinen Slot (ein Byte) angesprochen, ein Punkt ber seinen Index in der Schlange. Da ein Spieler mit Boost zwei Punkte pro
+ * Schritt bekommt, kann ein Slot mehrfach vorkommen. Index und Position werden als Differenz zur letzten Snapshot bertragen, die der Client
+ * besttigt hat (Baseline), und sind daher meist nur ein Byte lang. Der Winkel wird auf 15 Bit gerundet, das 16. Bit ist der active-Status.
+ *
+ * Auerdem enthlt jede Snapshot die Sequenznummer der Eingabe des Empfngers, die der Server zuletzt angewendet hat. Damit gleicht der Client seine
+ * Vorhersage ab.
+ *
+ * Format: tick, tick - baseTick (0 = keine Baseline), Eingabe, Anzahl, und pro Punkt: slot, Index, dx, dy, Winkel.
+ */
+public class Snapshot implements CustomSerialization {
+	/**
+	 * So viele Snapshots merken sich Server und Client, um sie als Baseline benutzen zu knnen.
+	 */
+	public static final int HISTORY = 32;
+
+	private static final int NO_BASELINE = -1;
+	private static final int ANGLE_STEPS = 1 << 15;
+	private static final int ACTIVE_BIT = 1 << 15;
+	private static final double TWO_PI = Math.PI * 2;
+
+	private int tick;
+	private int baseTick = NO_BASELINE;
+	private int inputSequence = -1;
+	private int count = 0;
+	private byte[] slots = new byte[8];
+	private int[] index = new int[8];
+	private int[] x = new int[8];
+	private int[] y = new int[8];
+	private short[] angle = new short[8];
+
+	// nur beim Schreiben gesetzt, siehe deltaTo()
+	private Snapshot baseline = null;
+	// nach dem Lesen enthalten x und y nur die Differenzen, bis resolve() aufgerufen wurde
+	private boolean resolved = true;
+
+	public Snapshot() {
+	}
+
+	public Snapshot(int tick) {
+		this.tick = tick;
+	}
+
+	/**
+	 * Fgt einen neuen Punkt eines Spielers hinzu.
+	 *
+	 * @param index
+	 *            - Index des Punktes in der Schlange
+	 */
+	public void add(int slot, int index, int x, int y, float angle, boolean isActive) {
+		if (count == slots.length) {
+			int capacity = count * 2;
+			slots = Arrays.copyOf(slots, capacity);
+			this.index = Arrays.copyOf(this.index, capacity);
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.angle = Arrays.copyOf(this.angle, capacity);
+		}
+		slots[count] = (byte) slot;
+		this.index[count] = index;
+		this.x[count] = x;
+		this.y[count] = y;
+		this.angle[count] = quantize(angle, isActive);
+		count++;
+	}
+
+	/**
+	 * bernimmt die Punkte einer lteren Snapshot, die neuer sind als die bereits enthaltenen. So entsteht aus den Snapshots mehrerer Ticks eine
+	 * einzige, wenn ein Client nicht jeden Tick bekommt. Der neueste Punkt jedes Spielers ist danach derselbe wie in der letzten bernommenen
+	 * Snapshot, sie taugt also weiter als Baseline.
+	 */
+	public void addAll(Snapshot other) {
+		for (int i = 0; i < other.count; i++) {
+			int newest = indexOf(other.slots[i]);
+			if (newest == -1 || other.index[i] > index[newest]) {
+				add(other.slots[i], other.index[i], other.x[i], other.y[i], 0, false);
+				// den schon gerundeten Winkel samt active-Bit bernehmen
+				angle[count - 1] = other.angle[i];
+			}
+		}
+	}
+
+	/**
+	 * Liefert eine Sicht auf diese Snapshot, die relativ zur Baseline geschrieben wird. Die Daten werden dabei nicht kopiert, so dass fr jeden
+	 * Client eine eigene Sicht angelegt werden kann.
+	 *
+	 * @param baseline
+	 *            - die letzte vom Client besttigte Snapshot oder null
+	 * @param inputSequence
+	 *            - die zuletzt angewendete Eingabe des Clients oder -1, wenn sein Spieler tot ist
+	 */
+	public Snapshot deltaTo(Snapshot baseline, int inputSequence) {
+		Snapshot delta = new Snapshot(tick);
+		delta.inputSequence = inputSequence;
+		delta.count = count;
+		delta.slots = slots;
+		delta.index = index;
+		delta.x = x;
+		delta.y = y;
+		delta.angle = angle;
+		delta.baseline = baseline;
+		return delta;
+	}
+
+	/**
+	 * Rechnet die empfangenen Differenzen mit der Baseline in absolute Positionen um.
+	 *
+	 * @param baseline
+	 *            - die Snapshot mit dem Tick {@link #getBaseTick()} oder null, wenn keine gebraucht wird
+	 * @return false, wenn die passende Baseline fehlt
+	 */
+	public boolean resolve(Snapshot baseline) {
+		if (resolved) {
+			return true;
+		}
+		if (baseTick != NO_BASELINE) {
+			if (baseline == null || baseline.tick != baseTick) {
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				int base = baseline.indexOf(slots[i]);
+				if (base != -1) {
+					index[i] += baseline.index[base];
+					x[i] += baseline.x[base];
+					y[i] += baseline.y[base];
+				}
+			}
+		}
+		resolved = true;
+		return true;
+	}
+
+	/**
+	 * @return der Eintrag mit dem neuesten Punkt des Spielers mit diesem Slot oder -1
+	 */
+	public int indexOf(int slot) {
+		for (int i = count - 1; i >= 0; i--) {
+			if (slots[i] == slot) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Rundet einen Winkel auf 15 Bit und speichert den active-Status im obersten Bit.
+	 */
+	static short quantize(float angle, boolean isActive) {
+		double normalized = angle % TWO_PI;
+		if (normalized < 0) {
+			normalized += TWO_PI;
+		}
+		int steps = (int) Math.round(normalized / TWO_PI * ANGLE_STEPS) & (ANGLE_STEPS - 1);
+		return (short) (steps | (isActive ? ACTIVE_BIT : 0));
+	}
+
+	static float dequantizeAngle(short angle) {
+		return (float) ((angle & (ANGLE_STEPS - 1)) * TWO_PI / ANGLE_STEPS);
+	}
+
+	static boolean dequantizeActive(short angle) {
+		return (angle & ACTIVE_BIT) != 0;
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return der Tick der Baseline oder -1, wenn die Positionen absolut bertragen wurden
+	 */
+	public int getBaseTick() {
+		return baseTick;
+	}
+
+	/**
+	 * @return die zuletzt angewendete Eingabe des Empfngers oder -1, wenn sein Spieler tot ist
+	 */
+	public int getInputSequence() {
+		return inputSequence;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getSlot(int index) {
+		return slots[index];
+	}
+
+	/**
+	 * @return Index des Punktes in der Schlange des Spielers
+	 */
+	public int getIndex(int index) {
+		return this.index[index];
+	}
+
+	public int getX(int index) {
+		return x[index];
+	}
+
+	public int getY(int index) {
+		return y[index];
+	}
+
+	public float getAngle(int index) {
+		return dequantizeAngle(angle[index]);
+	}
+
+	public boolean isActive(int index) {
+		return dequantizeActive(angle[index]);
+	}
+
+	public PlayerPoint getPoint(int index) {
+		PlayerPoint p = new PlayerPoint(x[index], y[index], getAngle(index));
+		p.setActive(isActive(index));
+		return p;
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		IntSerializer.put(buffer, tick, true);
+		IntSerializer.put(buffer, baseline == null ? 0 : tick - baseline.tick, true);
+		IntSerializer.put(buffer, inputSequence, false);
+		IntSerializer.put(buffer, count, true);
+		for (int i = 0; i < count; i++) {
+			int baseIndex = 0, baseX = 0, baseY = 0;
+			int base = baseline == null ? -1 : baseline.indexOf(slots[i]);
+			if (base != -1) {
+				baseIndex = baseline.index[base];
+				baseX = baseline.x[base];
+				baseY = baseline.y[base];
+			}
+			buffer.put(slots[i]);
+			IntSerializer.put(buffer, index[i] - baseIndex, false);
+			IntSerializer.put(buffer, x[i] - baseX, false);
+			IntSerializer.put(buffer, y[i] - baseY, false);
+			buffer.putShort(angle[i]);
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		tick = IntSerializer.get(buffer, true);
+		int baseDistance = IntSerializer.get(buffer, true);
+		baseTick = baseDistance == 0 ? NO_BASELINE : tick - baseDistance;
+		inputSequence = IntSerializer.get(buffer, false);
+		count = 0;
+		int entries = IntSerializer.get(buffer, true);
+		for (int i = 0; i < entries; i++) {
+			byte slot = buffer.get();
+			int dIndex = IntSerializer.get(buffer, false);
+			int dx = IntSerializer.get(buffer, false);
+			int dy = IntSerializer.get(buffer, false);
+			add(slot, dIndex, dx, dy, 0, false);
+			angle[i] = buffer.getShort();
+		}
+		resolved = false;
+	}
+}
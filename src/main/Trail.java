@@ -0,0 +1,168 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Speichert alle Punkte einer Schlange in parallelen, wachsenden Arrays, statt fr jeden Punkt ein eigenes Objekt anzulegen. Ein Punkt wird ber seinen
+ * Index angesprochen.
+ *
+ * Die Eckpunkte der Kollisionsrechtecke werden erst bei der ersten Kollisionsprfung berechnet, so dass reine Clients dafr keinen Speicher brauchen.
+ *
+ * Nicht thread-sicher. Auf dem Client hngt der Netzwerk-Thread Punkte an, whrend der Render-Thread zeichnet, beide synchronisieren dort auf die
+ * Schlange selbst (siehe {@link main.client.TrailSync} und {@link PlayerProperties#render(org.newdawn.slick.Graphics, int)}).
+ */
+public class Trail implements CustomSerialization {
+	private static final int INITIAL_CAPACITY = 256;
+
+	private int size = 0;
+	private int[] x = new int[INITIAL_CAPACITY];
+	private int[] y = new int[INITIAL_CAPACITY];
+	private float[] angle = new float[INITIAL_CAPACITY];
+	private BitSet active = new BitSet(INITIAL_CAPACITY);
+
+	private float[] corners = null;
+	private BitSet cornersCached = null;
+
+	/**
+	 * Hngt einen neuen, aktiven Punkt an die Schlange an.
+	 *
+	 * @return der Index des neuen Punktes
+	 */
+	public int add(int x, int y, float angle) {
+		if (size == this.x.length) {
+			int capacity = size * 2;
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.angle = Arrays.copyOf(this.angle, capacity);
+		}
+		this.x[size] = x;
+		this.y[size] = y;
+		this.angle[size] = angle;
+		active.set(size);
+		return size++;
+	}
+
+	/**
+	 * @see Trail#add(int, int, float)
+	 */
+	public int add(PlayerPoint p) {
+		int index = add(p.x, p.y, p.getAngle());
+		active.set(index, p.isActive());
+		return index;
+	}
+
+	/**
+	 * Liefert die Eckpunkte des gedrehten Kollisionsrechtecks eines Punktes. Da sich Position und Winkel eines Punktes nicht mehr ndern, werden sie nur
+	 * einmal berechnet.
+	 *
+	 * @param index
+	 * @param width
+	 *            - Breite des Bildes
+	 * @param height
+	 *            - Hhe des Bildes
+	 * @param result
+	 *            - float[8], siehe {@link OrientedBox}
+	 */
+	public void getCorners(int index, float width, float height, float[] result) {
+		if (corners == null) {
+			corners = new float[x.length * 8];
+			cornersCached = new BitSet(x.length);
+		} else if (corners.length < x.length * 8) {
+			corners = Arrays.copyOf(corners, x.length * 8);
+		}
+		if (!cornersCached.get(index)) {
+			OrientedBox.computeCorners(x[index], y[index], width, height, angle[index], result);
+			System.arraycopy(result, 0, corners, index * 8, 8);
+			cornersCached.set(index);
+		} else {
+			System.arraycopy(corners, index * 8, result, 0, 8);
+		}
+	}
+
+	public void clear() {
+		size = 0;
+		active.clear();
+		if (cornersCached != null) {
+			cornersCached.clear();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int lastIndex() {
+		return size - 1;
+	}
+
+	public int getX(int index) {
+		return x[index];
+	}
+
+	public int getY(int index) {
+		return y[index];
+	}
+
+	public float getAngle(int index) {
+		return angle[index];
+	}
+
+	public boolean isActive(int index) {
+		return active.get(index);
+	}
+
+	public void setActive(int index, boolean isActive) {
+		active.set(index, isActive);
+	}
+
+	/**
+	 * Abstand eines Punktes der Schlange zu einer beliebigen Position.
+	 */
+	public double distance(int index, int px, int py) {
+		double dx = x[index] - px;
+		double dy = y[index] - py;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Erzeugt aus einem Punkt der Schlange ein PlayerPoint-Objekt, z.B. fr die bertragung.
+	 */
+	public PlayerPoint getPoint(int index) {
+		PlayerPoint p = new PlayerPoint(x[index], y[index], angle[index]);
+		p.setActive(active.get(index));
+		return p;
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		IntSerializer.put(buffer, size, true);
+		for (int i = 0; i < size; i++) {
+			IntSerializer.put(buffer, x[i], false);
+			IntSerializer.put(buffer, y[i], false);
+			buffer.putFloat(angle[i]);
+			buffer.put((byte) (active.get(i) ? 1 : 0));
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		clear();
+		int count = IntSerializer.get(buffer, true);
+		for (int i = 0; i < count; i++) {
+			int index = add(IntSerializer.get(buffer, false), IntSerializer.get(buffer, false), buffer.getFloat());
+			active.set(index, buffer.get() == 1);
+		}
+	}
+}
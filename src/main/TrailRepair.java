@@ -0,0 +1,118 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.CustomSerialization;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serialize.IntSerializer;
+
+/**
+ * Ein zusammenhngender Abschnitt der Schlange eines Spielers, den der Server auf Anfrage eines Clients erneut schickt, weil die Snapshots mit diesen
+ * Punkten verloren gegangen sind. Die Winkel werden wie in der {@link Snapshot} gerundet, so dass der Client dieselben Werte bekommt.
+ *
+ * Format: slot, Index des ersten Punktes, Anzahl, und pro Punkt: x, y (als Differenz zum vorherigen Punkt), Winkel.
+ */
+public class TrailRepair implements CustomSerialization {
+	/**
+	 * Mehr Punkte werden nicht auf einmal geschickt, damit das Paket in ein UDP-Datagramm passt.
+	 */
+	public static final int MAX_POINTS = 64;
+
+	private int slot;
+	private int start;
+	private int count = 0;
+	private int[] x = new int[8];
+	private int[] y = new int[8];
+	private short[] angle = new short[8];
+
+	public TrailRepair() {
+	}
+
+	/**
+	 * Kopiert die Punkte from bis to (exklusiv) aus der Schlange, hchstens aber {@link #MAX_POINTS}.
+	 */
+	public TrailRepair(int slot, Trail trail, int from, int to) {
+		this.slot = slot;
+		start = from;
+		to = Math.min(Math.min(to, trail.size()), from + MAX_POINTS);
+		for (int i = from; i < to; i++) {
+			add(trail.getX(i), trail.getY(i), Snapshot.quantize(trail.getAngle(i), trail.isActive(i)));
+		}
+	}
+
+	private void add(int x, int y, short angle) {
+		if (count == this.x.length) {
+			int capacity = count * 2;
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.angle = Arrays.copyOf(this.angle, capacity);
+		}
+		this.x[count] = x;
+		this.y[count] = y;
+		this.angle[count] = angle;
+		count++;
+	}
+
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * @return Index des ersten Punktes in der Schlange
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getX(int index) {
+		return x[index];
+	}
+
+	public int getY(int index) {
+		return y[index];
+	}
+
+	public float getAngle(int index) {
+		return Snapshot.dequantizeAngle(angle[index]);
+	}
+
+	public boolean isActive(int index) {
+		return Snapshot.dequantizeActive(angle[index]);
+	}
+
+	// ------------------- Serialisierung ---------------------
+
+	@Override
+	public void writeObjectData(Kryo kryo, ByteBuffer buffer) {
+		buffer.put((byte) slot);
+		IntSerializer.put(buffer, start, true);
+		IntSerializer.put(buffer, count, true);
+		int lastX = 0, lastY = 0;
+		for (int i = 0; i < count; i++) {
+			IntSerializer.put(buffer, x[i] - lastX, false);
+			IntSerializer.put(buffer, y[i] - lastY, false);
+			buffer.putShort(angle[i]);
+			lastX = x[i];
+			lastY = y[i];
+		}
+	}
+
+	@Override
+	public void readObjectData(Kryo kryo, ByteBuffer buffer) {
+		slot = buffer.get();
+		start = IntSerializer.get(buffer, true);
+		int points = IntSerializer.get(buffer, true);
+		count = 0;
+		int lastX = 0, lastY = 0;
+		for (int i = 0; i < points; i++) {
+			lastX += IntSerializer.get(buffer, false);
+			lastY += IntSerializer.get(buffer, false);
+			add(lastX, lastY, buffer.getShort());
+		}
+	}
+}
@@ -5,9 +5,17 @@ import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.Vector;
 
+import main.Bullet;
+import main.BulletEvent;
 import main.GameConstants;
-import main.PlayerPoint;
+import main.FullState;
+import main.PlayerInput;
 import main.PlayerProperties;
+import main.PowerupEvent;
+import main.Snapshot;
+import main.Trail;
+import main.TrailRepair;
+import main.powerup.Powerup;
 import main.server.Network;
 
 import com.esotericsoftware.kryonet.Client;
@@ -27,7 +35,33 @@ public class CurveClient extends Listener {
 	private Client client = null;
 	private static CurveClient thisObject = null;
 
-	private Vector<PlayerProperties> playerProperties = new Vector<PlayerProperties>();
+	// wird im Netzwerk-Thread verndert und beim Raumwechsel ersetzt, der Render-Thread synchronisiert beim Durchlaufen auf den Vector
+	private volatile Vector<PlayerProperties> playerProperties = new Vector<PlayerProperties>();
+	// die zuletzt empfangenen Snapshots, als Baseline fr die Differenzen
+	private Snapshot[] snapshots = new Snapshot[Snapshot.HISTORY];
+	private int lastTick = -1;
+	private Network.SnapshotAck ack = new Network.SnapshotAck();
+	// slot -> Puffer fr Punkte, die nicht in der richtigen Reihenfolge ankommen
+	private HashMap<Integer, TrailSync> trailSyncs = new HashMap<Integer, TrailSync>();
+	private Prediction prediction = new Prediction();
+	private Interpolation interpolation = new Interpolation();
+	private StateAssembler stateAssembler = new StateAssembler();
+	private Vector<Powerup> powerups = new Vector<Powerup>();
+	// Tick des bernommenen FullState, -1 solange er noch nicht da ist
+	private int stateTick = -1;
+	// Ereignisse, die vor dem FullState ankommen
+	private Vector<PowerupEvent> pendingPowerupEvents = new Vector<PowerupEvent>();
+	private Vector<Bullet> bullets = new Vector<Bullet>();
+	private int tickLength = GameConstants.SIMULATION_TICK;
+	// noch nicht abgearbeitete Zeit fr die Schsse in ms
+	private int bulletTime = 0;
+	// die letzten Eingaben, werden bei jedem Senden wiederholt
+	private PlayerInput input = new PlayerInput();
+	private long lastInputSent = 0;
+	/**
+	 * Auch ohne nderung wird die Eingabe so oft (in ms) geschickt, damit der Server die Sequenznummer abgleichen kann.
+	 */
+	private static final int INPUT_HEARTBEAT = 200;
 
 	/**
 	 * Initialisiert den Client, verbindet sich aber nicht zu einem Server und wartet in einer Art Stand-By-Modus.
@@ -76,29 +110,370 @@ public class CurveClient extends Listener {
 		}
 	}
 
+	/**
+	 * Wechselt auf dem Server in einen anderen Raum. Ohne diesen Aufruf ist man im Standardraum.
+	 * 
+	 * @param roomID
+	 */
+	public void joinRoom(int roomID) {
+		Network.JoinRoom join = new Network.JoinRoom();
+		join.roomID = roomID;
+		client.sendTCP(join);
+	}
+
+	@Override
+	public void connected(Connection connection) {
+		super.connected(connection);
+		// ein neuer Server zhlt seine Ticks wieder von vorne
+		snapshots = new Snapshot[Snapshot.HISTORY];
+		lastTick = -1;
+		trailSyncs.clear();
+		prediction = new Prediction();
+		interpolation = new Interpolation();
+		stateAssembler = new StateAssembler();
+		powerups = new Vector<Powerup>();
+		stateTick = -1;
+		pendingPowerupEvents.clear();
+		bullets.clear();
+		input = new PlayerInput();
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public void received(Connection connection, Object object) {
 		super.received(connection, object);
-		if (object instanceof HashMap) {
+		if (object instanceof Snapshot) {
 			// hier werden Koordinaten empfangen
-			HashMap<Integer, PlayerPoint> newPoints = (HashMap<Integer, PlayerPoint>) object;
-			for (int i = 0; i < playerProperties.size(); i++) {
-				int conID = playerProperties.get(i).getConnectionID();
-				if (newPoints.containsKey(conID)) {
-					playerProperties.get(i).getPoints().add(newPoints.get(conID));
-				}
+			receivedSnapshot((Snapshot) object);
+		} else if (object instanceof Network.ServerSettings) {
+			tickLength = ((Network.ServerSettings) object).tickLength;
+			prediction.setTickLength(tickLength);
+			interpolation.setTickLength(tickLength);
+		} else if (object instanceof Network.StateChunk) {
+			FullState state = stateAssembler.add((Network.StateChunk) object, client.getKryo());
+			if (state != null) {
+				receivedFullState(state);
 			}
+		} else if (object instanceof TrailRepair) {
+			receivedTrailRepair((TrailRepair) object);
+		} else if (object instanceof PowerupEvent) {
+			receivedPowerupEvent((PowerupEvent) object);
+		} else if (object instanceof BulletEvent) {
+			receivedBulletEvent((BulletEvent) object);
+		} else if (object instanceof PlayerProperties) {
+			receivedProperties((PlayerProperties) object);
+		} else if (object instanceof Network.PlayerLeft) {
+			removeProperties(((Network.PlayerLeft) object).connectionID);
 		} else if (object instanceof Vector) {
-			// dies sind die playerproperties der spieler
+			// dies sind die playerproperties aller spieler, nach dem Betreten eines Raums
 			Vector<PlayerProperties> props = (Vector<PlayerProperties>) object;
+			// die Powerups des neuen Raums kommen mit dem FullState
+			synchronized (powerups) {
+				powerups.clear();
+			}
+			stateTick = -1;
+			pendingPowerupEvents.clear();
 			for (PlayerProperties playerProperties : props) {
 				System.out.println("[CLIENT] received props, name: " + playerProperties.getName());
+				keepTrail(playerProperties);
 			}
 			playerProperties = props;
 		}
 	}
 
+	/**
+	 * Ein Spieler ist dazugekommen oder hat Name, Farbe oder Punktestand gendert. Die Schlange kommt nicht mit, sie bleibt erhalten.
+	 */
+	private void receivedProperties(PlayerProperties props) {
+		System.out.println("[CLIENT] received props, name: " + props.getName());
+		for (int i = 0; i < playerProperties.size(); i++) {
+			PlayerProperties known = playerProperties.get(i);
+			if (known.getConnectionID() == props.getConnectionID()) {
+				known.copyMetadata(props);
+				known.setScore(props.getScore());
+				return;
+			}
+		}
+		keepTrail(props);
+		playerProperties.add(props);
+	}
+
+	private void removeProperties(int connectionID) {
+		Vector<PlayerProperties> playerProperties = this.playerProperties;
+		synchronized (playerProperties) {
+			for (int i = 0; i < playerProperties.size(); i++) {
+				if (playerProperties.get(i).getConnectionID() == connectionID) {
+					// der Slot wird fr den nchsten Spieler frei
+					trailSyncs.remove(playerProperties.remove(i).getSlot());
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * bernimmt die bisher empfangene Schlange, wenn der Spieler schon bekannt ist. Sonst gehren die gepufferten Punkte des Slots zu einem anderen
+	 * Spieler.
+	 */
+	private void keepTrail(PlayerProperties props) {
+		for (int i = 0; i < playerProperties.size(); i++) {
+			PlayerProperties known = playerProperties.get(i);
+			if (known.getConnectionID() == props.getConnectionID() && known.getSlot() == props.getSlot()) {
+				props.setTrail(known.getTrail());
+				return;
+			}
+		}
+		trailSyncs.remove(props.getSlot());
+	}
+
+	/**
+	 * Gibt die Punkte einer Snapshot an die Schlangen weiter und besttigt sie dem Server. Auch versptete Snapshots werden noch benutzt, da sie
+	 * Lcken fllen knnen. Snapshots, deren Baseline fehlt, werden verworfen, ihre Punkte kommen dann ber die Reparatur.
+	 */
+	private void receivedSnapshot(Snapshot snapshot) {
+		Snapshot baseline = null;
+		if (snapshot.getBaseTick() != -1) {
+			baseline = snapshots[snapshot.getBaseTick() % Snapshot.HISTORY];
+		}
+		if (!snapshot.resolve(baseline)) {
+			return;
+		}
+		int tick = snapshot.getTick();
+		interpolation.add(snapshot, System.currentTimeMillis());
+		Snapshot stored = snapshots[tick % Snapshot.HISTORY];
+		if (stored == null || stored.getTick() < tick) {
+			snapshots[tick % Snapshot.HISTORY] = snapshot;
+		}
+		if (tick > lastTick) {
+			lastTick = tick;
+			ack.tick = lastTick;
+			client.sendUDP(ack);
+			PlayerProperties own = getOwnProperties();
+			int head = own == null ? -1 : snapshot.indexOf(own.getSlot());
+			if (head != -1) {
+				prediction.reconcile(snapshot.getX(head), snapshot.getY(head), snapshot.getAngle(head), snapshot.getInputSequence());
+			}
+		}
+
+		for (int i = 0; i < snapshot.size(); i++) {
+			Trail trail = getTrail(snapshot.getSlot(i));
+			if (trail != null) {
+				getTrailSync(snapshot.getSlot(i)).receive(trail, snapshot.getIndex(i), snapshot.getX(i), snapshot.getY(i), snapshot.getAngle(i),
+						snapshot.isActive(i));
+			}
+		}
+		requestTrailRepairs();
+	}
+
+	/**
+	 * bernimmt den kompletten Zustand nach dem Einstieg in eine laufende Runde. Eine Schlange wird nur ersetzt, wenn sie lnger ist als die bisher
+	 * empfangene. Punkte, die whrenddessen per Snapshot gekommen sind, warten im TrailSync und werden danach angehngt.
+	 */
+	private void receivedFullState(FullState state) {
+		for (int i = 0; i < state.getPlayerCount(); i++) {
+			int slot = state.getSlot(i);
+			for (int j = 0; j < playerProperties.size(); j++) {
+				PlayerProperties props = playerProperties.get(j);
+				if (props.getSlot() == slot && state.getTrail(i).size() > props.getTrail().size()) {
+					props.setTrail(state.getTrail(i));
+					getTrailSync(slot).drain(props.getTrail());
+				}
+			}
+		}
+		synchronized (powerups) {
+			powerups.clear();
+			powerups.addAll(state.createPowerups());
+		}
+		stateTick = state.getTick();
+		for (int i = 0; i < pendingPowerupEvents.size(); i++) {
+			if (pendingPowerupEvents.get(i).getTick() > stateTick) {
+				applyPowerupEvent(pendingPowerupEvents.get(i));
+			}
+		}
+		pendingPowerupEvents.clear();
+	}
+
+	/**
+	 * Vor dem FullState werden die Ereignisse aufgehoben, da sie sich auf die Powerups im FullState beziehen knnen. Danach kommen per TCP nur noch
+	 * neuere.
+	 */
+	private void receivedPowerupEvent(PowerupEvent event) {
+		if (stateTick == -1) {
+			pendingPowerupEvents.add(event);
+		} else {
+			applyPowerupEvent(event);
+		}
+	}
+
+	private void applyPowerupEvent(PowerupEvent event) {
+		synchronized (powerups) {
+			if (event.getKind() == PowerupEvent.SPAWN) {
+				powerups.add(event.createPowerup());
+				return;
+			}
+			for (int i = 0; i < powerups.size(); i++) {
+				if (powerups.get(i).getID() == event.getID()) {
+					powerups.remove(i);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ein neuer Schuss fliegt ab jetzt auf dem Client, bei einem Treffer wird er entfernt und das Loch in die Schlange geschossen.
+	 */
+	private void receivedBulletEvent(BulletEvent event) {
+		synchronized (bullets) {
+			if (event.getKind() == BulletEvent.SPAWN) {
+				bullets.add(event.createBullet());
+				return;
+			}
+			for (int i = 0; i < bullets.size(); i++) {
+				if (bullets.get(i).getID() == event.getID()) {
+					bullets.remove(i);
+					break;
+				}
+			}
+		}
+		Trail trail = getTrail(event.getSlot());
+		if (trail == null) {
+			return;
+		}
+		int index = event.getIndex();
+		synchronized (trail) {
+			for (int i = Math.max(index - Bullet.HOLE_SIZE, 1); i < Math.min(index + Bullet.HOLE_SIZE, trail.size()); i++) {
+				trail.setActive(i, false);
+			}
+		}
+	}
+
+	/**
+	 * Bewegt die Kopien der Schsse im Takt der Simulation. Schsse, die die Spielwelt verlassen, entfernt der Client selbst.
+	 * 
+	 * @param delta
+	 *            - ms seit letztem Update
+	 */
+	public void updateBullets(int delta) {
+		bulletTime += delta;
+		synchronized (bullets) {
+			while (bulletTime >= tickLength) {
+				bulletTime -= tickLength;
+				for (int i = 0; i < bullets.size(); i++) {
+					bullets.get(i).move();
+					if (!bullets.get(i).isInsideScreen()) {
+						bullets.remove(i--);
+					}
+				}
+			}
+			for (int i = 0; i < bullets.size(); i++) {
+				bullets.get(i).updateEffects(delta);
+			}
+		}
+	}
+
+	private void receivedTrailRepair(TrailRepair repair) {
+		Trail trail = getTrail(repair.getSlot());
+		if (trail == null) {
+			return;
+		}
+		TrailSync sync = getTrailSync(repair.getSlot());
+		for (int i = 0; i < repair.size(); i++) {
+			sync.receive(trail, repair.getStart() + i, repair.getX(i), repair.getY(i), repair.getAngle(i), repair.isActive(i));
+		}
+	}
+
+	/**
+	 * Fordert fr alle Schlangen mit Lcken die fehlenden Punkte beim Server an.
+	 */
+	private void requestTrailRepairs() {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < playerProperties.size(); i++) {
+			PlayerProperties props = playerProperties.get(i);
+			TrailSync sync = getTrailSync(props.getSlot());
+			if (sync.shouldRequestRepair(now)) {
+				Network.TrailNack nack = new Network.TrailNack();
+				nack.slot = props.getSlot();
+				nack.from = props.getTrail().size();
+				nack.to = sync.getGapEnd();
+				client.sendUDP(nack);
+			}
+		}
+	}
+
+	private Trail getTrail(int slot) {
+		for (int i = 0; i < playerProperties.size(); i++) {
+			if (playerProperties.get(i).getSlot() == slot) {
+				return playerProperties.get(i).getTrail();
+			}
+		}
+		return null;
+	}
+
+	private TrailSync getTrailSync(int slot) {
+		TrailSync sync = trailSyncs.get(slot);
+		if (sync == null) {
+			sync = new TrailSync();
+			trailSyncs.put(slot, sync);
+		}
+		return sync;
+	}
+
+	/**
+	 * Schickt die Eingabe des aktuellen Schritts an den Server, aber nur, wenn sie sich gendert hat oder der Heartbeat fllig ist.
+	 * 
+	 * @param sequence
+	 *            - Sequenznummer des Schritts
+	 * @param bits
+	 *            - Bitfeld aus NetworkConstants.INPUT_LEFT, INPUT_RIGHT, INPUT_BOOST und INPUT_SHOOT
+	 */
+	public void sendInput(int sequence, int bits) {
+		long now = System.currentTimeMillis();
+		if (input.size() > 0 && bits == input.getLastBits() && now - lastInputSent < INPUT_HEARTBEAT) {
+			return;
+		}
+		input.add(sequence, bits);
+		lastInputSent = now;
+		client.sendUDP(input);
+	}
+
+	/**
+	 * @return die Eigenschaften des eigenen Spielers oder null, solange der Server sie noch nicht geschickt hat
+	 */
+	public PlayerProperties getOwnProperties() {
+		Vector<PlayerProperties> playerProperties = this.playerProperties;
+		synchronized (playerProperties) {
+			for (int i = 0; i < playerProperties.size(); i++) {
+				if (playerProperties.get(i).getConnectionID() == client.getID()) {
+					return playerProperties.get(i);
+				}
+			}
+		}
+		return null;
+	}
+
+	public Prediction getPrediction() {
+		return prediction;
+	}
+
+	public Interpolation getInterpolation() {
+		return interpolation;
+	}
+
+	/**
+	 * @return die Kopien der Powerups des Servers, beim Durchlaufen darauf synchronisieren
+	 */
+	public Vector<Powerup> getPowerups() {
+		return powerups;
+	}
+
+	/**
+	 * @return die Kopien der Schsse, beim Durchlaufen darauf synchronisieren
+	 */
+	public Vector<Bullet> getBullets() {
+		return bullets;
+	}
+
 	/**
 	 * Liefert das Client-Objekt dieses Spielers.
 	 * 
@@ -109,7 +484,7 @@ public class CurveClient extends Listener {
 	}
 
 	/**
-	 * Liefert die Eigenschaften dieses Spielers.
+	 * Liefert die Eigenschaften aller Spieler im Raum. Der Netzwerk-Thread verndert den Vector, wer ihn durchluft, muss daher auf ihn synchronisieren.
 	 * 
 	 * @return PlayerProperties
 	 */
@@ -0,0 +1,140 @@
+package main.client;
+
+import main.GameConstants;
+import main.Snapshot;
+
+/**
+ * Puffert die empfangenen Snapshots nach Server-Tick, damit die Kpfe der anderen Spieler gleichmig gezeichnet werden knnen, auch wenn die
+ * Pakete unregelmig ankommen. Gezeichnet wird mit einer Verzgerung, zwischen den beiden Snapshots, die diesen Zeitpunkt umschlieen.
+ *
+ * Die Verzgerung passt sich dem gemessenen Jitter an: eine Tick-Lnge plus das Doppelte der mittleren Versptung der Pakete (gleitender Mittelwert
+ * wie bei RTP).
+ */
+public class Interpolation {
+	private static final int MAX_DELAY = 300;
+
+	private int tickLength = GameConstants.SIMULATION_TICK;
+	private Snapshot[] snapshots = new Snapshot[Snapshot.HISTORY];
+	private int newestTick = -1;
+
+	// Serverzeit (tick * tickLength) minus lokale Zeit, geschtzt am schnellsten Paket
+	private boolean synced = false;
+	private double offset = 0;
+	private double jitter = 0;
+
+	// Ergebnis von interpolate()
+	private float x, y, angle;
+	private int index;
+
+	/**
+	 * Nimmt eine aufgelste Snapshot auf und aktualisiert die Schtzung von Serverzeit und Jitter.
+	 *
+	 * @param now
+	 *            - lokale Zeit in ms beim Empfang
+	 */
+	public synchronized void add(Snapshot snapshot, long now) {
+		int tick = snapshot.getTick();
+		Snapshot stored = snapshots[tick % Snapshot.HISTORY];
+		if (stored == null || stored.getTick() < tick) {
+			snapshots[tick % Snapshot.HISTORY] = snapshot;
+		}
+		newestTick = Math.max(newestTick, tick);
+
+		double sample = (double) tick * tickLength - now;
+		if (!synced || sample > offset) {
+			offset = sample;
+			synced = true;
+		} else {
+			// die Uhren laufen nicht exakt gleich, daher langsam nachfhren
+			offset += (sample - offset) / 100;
+		}
+		double lateness = offset - sample;
+		jitter += (lateness - jitter) / 16;
+	}
+
+	/**
+	 * @return die aktuelle Verzgerung beim Zeichnen in ms
+	 */
+	public synchronized int getDelay() {
+		return (int) Math.min(tickLength + 2 * jitter, MAX_DELAY);
+	}
+
+	/**
+	 * Berechnet die Position des Kopfes eines Spielers zum verzgerten Zeitpunkt. Das Ergebnis steht danach in {@link #getX()}, {@link #getY()},
+	 * {@link #getAngle()} und {@link #getIndex()}.
+	 *
+	 * @param slot
+	 *            - Slot des Spielers
+	 * @param now
+	 *            - lokale Zeit in ms
+	 * @return false, wenn es fr den Spieler keine passende Snapshot gibt
+	 */
+	public synchronized boolean interpolate(int slot, long now) {
+		if (!synced) {
+			return false;
+		}
+		double renderTick = (now + offset - getDelay()) / tickLength;
+
+		// die neueste Snapshot vor und die lteste nach dem Zeitpunkt suchen
+		Snapshot from = null, to = null;
+		for (int i = 0; i < snapshots.length; i++) {
+			Snapshot s = snapshots[i];
+			if (s == null || newestTick - s.getTick() >= Snapshot.HISTORY || s.indexOf(slot) == -1) {
+				continue;
+			}
+			if (s.getTick() <= renderTick) {
+				if (from == null || s.getTick() > from.getTick()) {
+					from = s;
+				}
+			} else if (to == null || s.getTick() < to.getTick()) {
+				to = s;
+			}
+		}
+		if (from == null) {
+			return false;
+		}
+		int a = from.indexOf(slot);
+		x = from.getX(a);
+		y = from.getY(a);
+		angle = from.getAngle(a);
+		index = from.getIndex(a);
+		if (to == null) {
+			// nicht in die Zukunft raten, der Kopf bleibt stehen
+			return true;
+		}
+		int b = to.indexOf(slot);
+		float t = (float) ((renderTick - from.getTick()) / (to.getTick() - from.getTick()));
+		x += (to.getX(b) - x) * t;
+		y += (to.getY(b) - y) * t;
+		// ber den krzeren Weg drehen
+		float turn = (float) Math.IEEEremainder(to.getAngle(b) - angle, Math.PI * 2);
+		angle += turn * t;
+		return true;
+	}
+
+	/**
+	 * Muss zur Schrittlnge des Servers passen, siehe Network.ServerSettings.
+	 */
+	public synchronized void setTickLength(int tickLength) {
+		this.tickLength = tickLength;
+	}
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	public float getAngle() {
+		return angle;
+	}
+
+	/**
+	 * @return Index des letzten Punktes der Schlange, der vor dem interpolierten Kopf liegt
+	 */
+	public int getIndex() {
+		return index;
+	}
+}
@@ -0,0 +1,152 @@
+package main.client;
+
+import main.GameConstants;
+import main.Player;
+import main.PlayerProperties;
+import main.Trail;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+
+import utils.ResourceManager;
+
+/**
+ * Sagt die Bewegung der eigenen Schlange voraus, damit das Lenken ohne Verzgerung sichtbar ist. Der Client rechnet dazu in denselben festen
+ * Schritten wie der Server mit denselben Regeln ({@link Player#stepX(float, float)}, {@link Player#steer(float, int)}) weiter. Jeder Schritt
+ * bekommt eine Sequenznummer, die mit der Eingabe an den Server geht.
+ *
+ * Kommt vom Server eine neue Position zusammen mit der Sequenznummer der zuletzt angewendeten Eingabe, werden alle besttigten Schritte verworfen
+ * und die brigen ausgehend von der Serverposition neu berechnet. Lag die Vorhersage daneben, springt die Schlange also auf den korrigierten Weg.
+ */
+public class Prediction {
+	// ohne Antwort vom Server wird hchstens so weit vorhergesagt, z.B. nach dem Tod oder am Spielende
+	private static final int MAX_PENDING = 32;
+
+	private int tickLength = GameConstants.SIMULATION_TICK;
+	private int accumulator = 0;
+	private int sequence = 0;
+
+	// die noch nicht besttigten Schritte
+	private int[] pendingSequence = new int[MAX_PENDING];
+	private int[] pendingDirection = new int[MAX_PENDING];
+	private boolean[] pendingBoost = new boolean[MAX_PENDING];
+	private int pendingCount = 0;
+
+	// letzte Position vom Server, Ausgangspunkt der Vorhersage
+	private boolean hasBase = false;
+	private int baseX, baseY;
+	private float baseAngle;
+
+	private Trail predicted = new Trail();
+
+	/**
+	 * Fhrt so viele Schritte aus, wie in die vergangene Zeit passen, und merkt sich fr jeden die Eingabe.
+	 *
+	 * @param delta
+	 *            - ms seit letztem Aufruf
+	 * @param direction
+	 *            - NetworkConstants.PLAYER_MOVE_LEFT, PLAYER_MOVE_RIGHT oder PLAYER_MOVE_STRAIGHT
+	 * @param boost
+	 *            - ob der Boost gedrckt ist
+	 * @return Anzahl der ausgefhrten Schritte, fr jeden sollte die Eingabe verschickt werden
+	 */
+	public synchronized int update(int delta, int direction, boolean boost) {
+		accumulator += delta;
+		int ticks = 0;
+		while (accumulator >= tickLength) {
+			accumulator -= tickLength;
+			sequence++;
+			ticks++;
+			if (!hasBase || pendingCount == MAX_PENDING) {
+				continue;
+			}
+			pendingSequence[pendingCount] = sequence;
+			pendingDirection[pendingCount] = direction;
+			pendingBoost[pendingCount] = boost;
+			pendingCount++;
+			step(direction, boost);
+		}
+		return ticks;
+	}
+
+	/**
+	 * Gleicht die Vorhersage mit der Position vom Server ab.
+	 *
+	 * @param inputSequence
+	 *            - die zuletzt vom Server angewendete Eingabe oder -1, wenn der Spieler tot ist
+	 */
+	public synchronized void reconcile(int x, int y, float angle, int inputSequence) {
+		predicted.clear();
+		if (inputSequence == -1) {
+			hasBase = false;
+			pendingCount = 0;
+			return;
+		}
+		hasBase = true;
+		baseX = x;
+		baseY = y;
+		baseAngle = angle;
+
+		int confirmed = 0;
+		while (confirmed < pendingCount && pendingSequence[confirmed] <= inputSequence) {
+			confirmed++;
+		}
+		pendingCount -= confirmed;
+		System.arraycopy(pendingSequence, confirmed, pendingSequence, 0, pendingCount);
+		System.arraycopy(pendingDirection, confirmed, pendingDirection, 0, pendingCount);
+		System.arraycopy(pendingBoost, confirmed, pendingBoost, 0, pendingCount);
+
+		for (int i = 0; i < pendingCount; i++) {
+			step(pendingDirection[i], pendingBoost[i]);
+		}
+	}
+
+	/**
+	 * Ein Schritt wie in Player.move(), mit Boost werden zwei Punkte berechnet.
+	 */
+	private void step(int direction, boolean boost) {
+		int steps = boost ? 2 : 1;
+		for (int i = 0; i < steps; i++) {
+			int x = baseX, y = baseY;
+			float angle = baseAngle;
+			if (!predicted.isEmpty()) {
+				x = predicted.getX(predicted.lastIndex());
+				y = predicted.getY(predicted.lastIndex());
+				angle = predicted.getAngle(predicted.lastIndex());
+			}
+			x += Player.stepX(angle, Player.DEFAULT_SPEED);
+			y += Player.stepY(angle, Player.DEFAULT_SPEED);
+			predicted.add(x, y, Player.steer(angle, direction));
+		}
+	}
+
+	/**
+	 * Zeichnet die vorhergesagten Punkte im Aussehen des eigenen Spielers, im Anschluss an seine Schlange.
+	 */
+	public synchronized void render(Graphics g, PlayerProperties properties) {
+		if (predicted.isEmpty()) {
+			return;
+		}
+		Image tmpImg = ResourceManager.getImage(properties.getImageKey()).copy();
+		Color color = new Color(properties.getColorCode());
+		for (int i = 0; i < predicted.size(); i++) {
+			tmpImg.setRotation((float) Math.toDegrees(predicted.getAngle(i)));
+			g.drawImage(tmpImg, predicted.getX(i) - tmpImg.getWidth() / 2, predicted.getY(i) - tmpImg.getHeight() / 2, color);
+		}
+	}
+
+	/**
+	 * Muss zur Schrittlnge des Servers passen, siehe Network.ServerSettings.
+	 */
+	public synchronized void setTickLength(int tickLength) {
+		this.tickLength = tickLength;
+	}
+
+	/**
+	 * @return Sequenznummer des letzten Schritts
+	 */
+	public synchronized int getSequence() {
+		return sequence;
+	}
+}
@@ -0,0 +1,43 @@
+package main.client;
+
+import java.io.ByteArrayOutputStream;
+
+import main.FullState;
+import main.server.Network;
+import main.server.StateTransfer;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Setzt die Stcke eines {@link FullState} wieder zusammen. Da sie per TCP kommen, ist die Reihenfolge garantiert. Beginnt eine neue bertragung,
+ * wird eine unvollstndige alte verworfen.
+ */
+public class StateAssembler {
+	private int transferID = -1;
+	private int nextChunk = 0;
+	private ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+	/**
+	 * Nimmt ein Stck entgegen.
+	 *
+	 * @return der vollstndige Zustand nach dem letzten Stck, sonst null
+	 */
+	public FullState add(Network.StateChunk chunk, Kryo kryo) {
+		if (chunk.transferID != transferID) {
+			transferID = chunk.transferID;
+			nextChunk = 0;
+			data.reset();
+		}
+		if (chunk.index != nextChunk) {
+			return null;
+		}
+		data.write(chunk.data, 0, chunk.data.length);
+		nextChunk++;
+		if (nextChunk < chunk.count) {
+			return null;
+		}
+		FullState state = StateTransfer.decode(kryo, data.toByteArray());
+		data.reset();
+		return state;
+	}
+}
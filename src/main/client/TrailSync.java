@@ -0,0 +1,81 @@
+package main.client;
+
+import java.util.TreeMap;
+
+import main.PlayerPoint;
+import main.Trail;
+
+/**
+ * Sorgt dafr, dass die Schlange eines Spielers auf dem Client lckenlos und in der richtigen Reihenfolge aufgebaut wird, obwohl die Punkte per UDP
+ * kommen. Jeder Punkt trgt seinen Index in der Schlange des Servers. Passt er genau ans Ende, wird er angehngt, sonst wartet er im Puffer, bis die
+ * fehlenden Punkte (notfalls per {@link main.server.Network.TrailNack} angefordert) angekommen sind.
+ */
+public class TrailSync {
+	/**
+	 * Mindestabstand in ms zwischen zwei Anfragen fr dieselbe Lcke.
+	 */
+	private static final int NACK_INTERVAL = 100;
+	// mehr Punkte werden nicht gepuffert, danach hilft nur noch die Reparatur
+	private static final int MAX_PENDING = 512;
+
+	private TreeMap<Integer, PlayerPoint> pending = new TreeMap<Integer, PlayerPoint>();
+	private long lastNack = 0;
+
+	/**
+	 * Nimmt einen Punkt entgegen. Doppelte Punkte werden ignoriert.
+	 *
+	 * @param trail
+	 *            - die Schlange des Spielers auf dem Client
+	 * @param index
+	 *            - Index des Punktes in der Schlange des Servers
+	 */
+	public void receive(Trail trail, int index, int x, int y, float angle, boolean isActive) {
+		synchronized (trail) {
+			if (index < trail.size()) {
+				return;
+			}
+			if (index == trail.size()) {
+				trail.setActive(trail.add(x, y, angle), isActive);
+				drain(trail);
+			} else if (pending.size() < MAX_PENDING) {
+				PlayerPoint p = new PlayerPoint(x, y, angle);
+				p.setActive(isActive);
+				pending.put(index, p);
+			}
+		}
+	}
+
+	/**
+	 * Hngt alle gepufferten Punkte an, die jetzt ans Ende der Schlange passen. Die Schlange wird dabei gesperrt, da der Render-Thread sie
+	 * gleichzeitig zeichnet.
+	 */
+	public void drain(Trail trail) {
+		synchronized (trail) {
+			while (!pending.isEmpty() && pending.firstKey() <= trail.size()) {
+				int index = pending.firstKey();
+				PlayerPoint p = pending.remove(index);
+				if (index == trail.size()) {
+					trail.add(p);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true, wenn Punkte fehlen und seit der letzten Anfrage genug Zeit vergangen ist
+	 */
+	public boolean shouldRequestRepair(long now) {
+		if (pending.isEmpty() || now - lastNack < NACK_INTERVAL) {
+			return false;
+		}
+		lastNack = now;
+		return true;
+	}
+
+	/**
+	 * @return Index des ersten gepufferten Punktes, also das (exklusive) Ende der Lcke
+	 */
+	public int getGapEnd() {
+		return pending.firstKey();
+	}
+}
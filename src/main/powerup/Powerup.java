@@ -1,7 +1,7 @@
 package main.powerup;
 
 import java.awt.Point;
-import java.util.Vector;
+import java.util.Random;
 
 import main.GameConstants;
 
@@ -15,37 +15,67 @@ import utils.ResourceManager;
  *
  */
 public abstract class Powerup {
-	private static Vector<Powerup> powerups = new Vector<Powerup>();
+	private int id = -1;
 	private Point position;
 	private Image image;
 	private int timeout = 10000;
 	private int curTimeout = -10000;
 	private boolean blendingIn = true;
+	private boolean expired = false;
 	
-	private static double spawnProbability = 0;
+	// entspricht dem frheren Anstieg von 0.0001 pro Frame bei 60 FPS
+	public static final double SPAWN_PROBABILITY_PER_MS = 0.000006;
+
+	// Typen fr die bertragung an die Clients
+	public static final int TYPE_SHOT = 0;
+	public static final int TYPE_BOOST = 1;
 	
-	public Powerup(String imageKey){
-		image = ResourceManager.getImage(imageKey).copy();
-		int x = (int) Math.round((Math.random()*(GameConstants.APP_WIDHT-image.getWidth())-image.getWidth())+image.getWidth()/2);
-		int y = (int) Math.round((Math.random()*(GameConstants.APP_HEIGHT-image.getHeight())-image.getHeight())+image.getHeight()/2);
+	public Powerup(String imageKey, Random random){
+		this(imageKey, 0, 0);
+		int size = GameConstants.POWERUP_SIZE;
+		position.x = (int) Math.round((random.nextDouble()*(GameConstants.APP_WIDHT-size)-size)+size/2);
+		position.y = (int) Math.round((random.nextDouble()*(GameConstants.APP_HEIGHT-size)-size)+size/2);
+	}
+
+	/**
+	 * Fr die Kopie eines Powerups auf dem Client, die Position kommt vom Server.
+	 */
+	public Powerup(String imageKey, int x, int y){
+		if (!ResourceManager.isHeadless()) {
+			image = ResourceManager.getImage(imageKey).copy();
+		}
 		position = new Point(x, y);
-		powerups.add(this);
+	}
+
+	/**
+	 * Erzeugt auf dem Client die Kopie eines Powerups des Servers.
+	 * 
+	 * @param type
+	 *            - TYPE_SHOT oder TYPE_BOOST
+	 */
+	public static Powerup create(int type, int x, int y){
+		switch (type) {
+		case TYPE_SHOT:
+			return new PowerupShot(x, y);
+		default:
+			return new PowerupBoost(x, y);
+		}
 	}
 	
-	public static void powerupSpawner(){
-		spawnProbability += 0.0001;
-		if (Math.random() < spawnProbability){
-			spawnProbability = 0;
-			// Powerup spawnen
-			int choice = (int) Math.round(Math.random());
-			switch (choice) {
-			case 0:
-				new PowerupShot();
-				break;
-			case 1:
-				new PowerupBoost();
-				break;
-			}
+	/**
+	 * Erzeugt ein zuflliges Powerup an einer zuflligen Position.
+	 * 
+	 * @param random
+	 *            - Zufallsgenerator der Simulation
+	 * @return Powerup
+	 */
+	public static Powerup createRandom(Random random){
+		int choice = random.nextInt(2);
+		switch (choice) {
+		case TYPE_SHOT:
+			return new PowerupShot(random);
+		default:
+			return new PowerupBoost(random);
 		}
 	}
 	
@@ -62,14 +92,44 @@ public abstract class Powerup {
 			}
 		}
 		if (curTimeout >= timeout){
-			powerups.remove(this);
+			expired = true;
 			return;
 		}
-		image.setAlpha(1-Math.abs(curTimeout/(float)timeout));
+		if (image != null) {
+			image.setAlpha(1-Math.abs(curTimeout/(float)timeout));
+		}
+	}
+
+	/**
+	 * @return TYPE_SHOT oder TYPE_BOOST
+	 */
+	public abstract int getType();
+
+	/**
+	 * @return ms seit dem Erscheinen, negativ whrend des Einblendens
+	 */
+	public int getAge() {
+		return curTimeout;
+	}
+
+	public void setAge(int age) {
+		curTimeout = age;
+		blendingIn = age < 0;
+	}
+
+	/**
+	 * @return die vom Raum vergebene ID, ber die Server und Clients das Powerup ansprechen
+	 */
+	public int getID() {
+		return id;
+	}
+
+	public void setID(int id) {
+		this.id = id;
 	}
 
-	public static Vector<Powerup> getPowerups() {
-		return powerups;
+	public boolean isExpired() {
+		return expired;
 	}
 
 	public Point getPosition() {
@@ -1,9 +1,20 @@
 package main.powerup;
 
+import java.util.Random;
+
 public class PowerupBoost extends Powerup{
 
-	public PowerupBoost() {
-		super("puBoost");
+	public PowerupBoost(Random random) {
+		super("puBoost", random);
+	}
+
+	public PowerupBoost(int x, int y) {
+		super("puBoost", x, y);
+	}
+
+	@Override
+	public int getType() {
+		return TYPE_BOOST;
 	}
 
 }
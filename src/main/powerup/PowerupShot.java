@@ -1,7 +1,18 @@
 package main.powerup;
 
+import java.util.Random;
+
 public class PowerupShot extends Powerup{
-	public PowerupShot(){
-		super("puShot");
+	public PowerupShot(Random random){
+		super("puShot", random);
+	}
+
+	public PowerupShot(int x, int y){
+		super("puShot", x, y);
+	}
+
+	@Override
+	public int getType() {
+		return TYPE_SHOT;
 	}
 }
@@ -1,86 +1,226 @@
 package main.server;
 
-import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import main.BulletEvent;
+import main.FullState;
 import main.GameConstants;
 import main.NetworkConstants;
 import main.Player;
-import main.PlayerPoint;
+import main.PlayerInput;
 import main.PlayerProperties;
+import main.PowerupEvent;
+import main.Room;
+import main.Simulation;
+import main.Snapshot;
+import main.Trail;
+import main.TrailRepair;
 
 import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
-import com.esotericsoftware.kryonet.Server;
 
-public class CurveServer extends Listener {
-	private Server server;
+/**
+ * Die Serverlogik eines Raums. Die Netzwerkereignisse der Spieler in diesem Raum bekommt sie vom {@link RoomManager}, der alle Rume ber einen
+ * gemeinsamen KryoNet-Server betreibt. Nachrichten gehen nur an die Spieler dieses Raums.
+ * 
+ * Die Ereignisse kommen im Thread von KryoNet an und werden dort nur in eine Warteschlange gestellt. Abgearbeitet werden sie zu Beginn jedes
+ * Simulationsschritts im Thread der Simulation, der damit als einziger den Zustand des Raums verndert und ohne Locks auskommt.
+ */
+public class CurveServer extends Listener implements Simulation.TickListener {
+	private Room room;
+	private Simulation simulation;
+	private boolean gameStarted = false;
 	private HashMap<Integer, Player> playerCons = new HashMap<Integer, Player>();
+	// die Snapshots der letzten Ticks, aus denen die Snapshot fr einen Client zusammengesetzt wird
+	private Snapshot[] snapshots = new Snapshot[Snapshot.HISTORY];
+	// connectionID -> die zuletzt an diesen Client verschickten Snapshots, als Baseline fr die Differenzen. Der Client merkt sich genau diese, nicht
+	// die Snapshots der einzelnen Ticks
+	private HashMap<Integer, Snapshot[]> sentSnapshots = new HashMap<Integer, Snapshot[]>();
+	// connectionID -> letzter besttigter Tick
+	private HashMap<Integer, Integer> ackedTicks = new HashMap<Integer, Integer>();
+	// connectionID -> Anzahl der Punkte der Schlange, die schon in einer Snapshot verschickt wurden
+	private HashMap<Integer, Integer> sentPoints = new HashMap<Integer, Integer>();
+	// ltere neue Punkte holen sich die Clients per TrailNack
+	private static final int MAX_POINTS_PER_SNAPSHOT = 4;
+	// connectionID -> Tick der letzten Snapshot an diesen Client
+	private HashMap<Integer, Integer> lastSnapshotTicks = new HashMap<Integer, Integer>();
+	// ein Client bekommt hchstens alle RTT / RTT_DIVISOR ms eine Snapshot, fter hilft ihm bei hoher Latenz kaum
+	private static final int RTT_DIVISOR = 4;
+	private Network.ServerSettings settings = new Network.ServerSettings();
+	// connectionIDs, die beim nchsten Schritt den kompletten Zustand bekommen
+	private Vector<Integer> stateRequests = new Vector<Integer>();
+	// connectionID -> laufende bertragung, nur im Simulations-Thread benutzt
+	private HashMap<Integer, StateTransfer> stateTransfers = new HashMap<Integer, StateTransfer>();
 
 	private Vector<Player> players = new Vector<Player>();
 
-	public CurveServer() {
-		try {
-			server = new Server();
-			Network.registerClasses(server);
-			server.addListener(this);
-			server.start();
-			server.bind(GameConstants.PORT_TCP, GameConstants.PORT_UDP);
-		} catch (IOException e) {
-			e.printStackTrace();
+	// von beliebig vielen KryoNet-Threads befllt, nur vom Simulations-Thread geleert
+	private ConcurrentLinkedQueue<NetworkEvent> events = new ConcurrentLinkedQueue<NetworkEvent>();
+
+	/**
+	 * Ein Ereignis von KryoNet, das auf den Simulations-Thread wartet.
+	 */
+	private static class NetworkEvent {
+		private static final int CONNECTED = 0;
+		private static final int RECEIVED = 1;
+		private static final int DISCONNECTED = 2;
+
+		private int type;
+		private Connection connection;
+		private Object object;
+
+		private NetworkEvent(int type, Connection connection, Object object) {
+			this.type = type;
+			this.connection = connection;
+			this.object = object;
 		}
 	}
 
-	public void shutdown() {
-		server.stop();
+	public CurveServer(int roomID) {
+		this(roomID, GameConstants.SIMULATION_TICK, GameConstants.SNAPSHOT_INTERVAL);
 	}
 
-	public InetAddress getIP() {
-		try {
-			return InetAddress.getLocalHost();
-		} catch (UnknownHostException e) {
-			e.printStackTrace();
+	/**
+	 * @param tickLength
+	 *            - Lnge eines Simulationsschritts in ms
+	 * @param snapshotInterval
+	 *            - Abstand zwischen zwei Snapshots an einen Client in ms, wird auf ganze Schritte aufgerundet
+	 */
+	public CurveServer(int roomID, int tickLength, int snapshotInterval) {
+		room = new Room(roomID);
+		simulation = new Simulation(room, new Random(), tickLength);
+		simulation.setTickListener(this);
+		settings.tickLength = tickLength;
+		settings.snapshotInterval = snapshotInterval;
+	}
+
+	/**
+	 * Wird vom RoomManager in festen Abstnden aufgerufen. Die Simulation startet, sobald genug Spieler verbunden und alle bereit sind.
+	 * 
+	 * @param delta
+	 *            - ms seit letztem Aufruf
+	 */
+	public void update(int delta) {
+		if (!gameStarted) {
+			// ohne laufende Simulation gibt es keinen Schritt, der die Ereignisse abarbeitet
+			processEvents();
+			gameStarted = allPlayersReady();
+			if (!gameStarted) {
+				return;
+			}
+			System.out.println("[SERVER] room " + room.getID() + ": all players ready, starting game");
 		}
+		simulation.update(delta);
+	}
 
-		return null;
+	/**
+	 * @return true, wenn mindestens GameConstants.MIN_PLAYERS verbunden sind und alle das Spiel gestartet haben
+	 */
+	private boolean allPlayersReady() {
+		if (playerCons.size() < GameConstants.MIN_PLAYERS) {
+			return false;
+		}
+		Iterator<Player> players = playerCons.values().iterator();
+		while (players.hasNext()) {
+			if (!players.next().isReady()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public void connected(Connection connection) {
-		super.connected(connection);
+		events.add(new NetworkEvent(NetworkEvent.CONNECTED, connection, null));
+	}
 
-		playerCons.put(connection.getID(), new Player(connection));
+	@Override
+	public void received(Connection connection, Object object) {
+		events.add(new NetworkEvent(NetworkEvent.RECEIVED, connection, object));
+	}
 
-		sendPropertiesToAllPlayers();
+	@Override
+	public void disconnected(Connection connection) {
+		events.add(new NetworkEvent(NetworkEvent.DISCONNECTED, connection, null));
 	}
 
-	private void sendPropertiesToAllPlayers() {
-		Vector<PlayerProperties> props = new Vector<PlayerProperties>();
+	/**
+	 * Arbeitet alle bisher angekommenen Netzwerkereignisse in ihrer Reihenfolge ab. Darf nur im Thread der Simulation aufgerufen werden. Luft die
+	 * Simulation im Spiel-Thread (wenn ein Spieler selbst Server ist), muss dieser das auch in der Lobby regelmig tun.
+	 */
+	public void processEvents() {
+		NetworkEvent event;
+		while ((event = events.poll()) != null) {
+			switch (event.type) {
+			case NetworkEvent.CONNECTED:
+				handleConnected(event.connection);
+				break;
+			case NetworkEvent.RECEIVED:
+				handleReceived(event.connection, event.object);
+				break;
+			case NetworkEvent.DISCONNECTED:
+				handleDisconnected(event.connection);
+				break;
+			}
+		}
+	}
+
+	private void handleConnected(Connection connection) {
+		Player player = new Player(connection, room);
+		playerCons.put(connection.getID(), player);
+		connection.sendTCP(settings);
+		stateRequests.add(connection.getID());
+
+		// der Neue bekommt alle, die anderen nur den Neuen
+		connection.sendTCP(room.getAllPlayerProperties());
+		sendToAllExceptTCP(connection.getID(), player.getProperties());
+	}
+
+	private void sendToAllTCP(Object object) {
 		Iterator<Player> players = playerCons.values().iterator();
 		while (players.hasNext()) {
-			PlayerProperties curProps = players.next().getProperties();
-			System.out.println("[SERVER] sending to client name: " + curProps.getName());
-			props.add(curProps);
+			players.next().getConnection().sendTCP(object);
 		}
-		server.sendToAllTCP(props);
 	}
 
-	@Override
-	public void disconnected(Connection connection) {
-		super.disconnected(connection);
-
-		playerCons.remove(connection.getID());
+	private void sendToAllExceptTCP(int connectionID, Object object) {
+		Iterator<Player> players = playerCons.values().iterator();
+		while (players.hasNext()) {
+			Connection connection = players.next().getConnection();
+			if (connection.getID() != connectionID) {
+				connection.sendTCP(object);
+			}
+		}
 	}
 
-	@Override
-	public void received(Connection connection, Object object) {
-		super.received(connection, object);
+	/**
+	 * Entfernt den Spieler aus dem Raum und meldet das den anderen. Kommt nach PLAYER_DISCONNECT noch das Ereignis von KryoNet, ist der Spieler
+	 * schon weg.
+	 */
+	private void handleDisconnected(Connection connection) {
+		if (playerCons.remove(connection.getID()) == null) {
+			return;
+		}
+		ackedTicks.remove(connection.getID());
+		sentSnapshots.remove(connection.getID());
+		sentPoints.remove(connection.getID());
+		lastSnapshotTicks.remove(connection.getID());
+		room.removePlayer(connection.getID());
+
+		Network.PlayerLeft left = new Network.PlayerLeft();
+		left.connectionID = connection.getID();
+		sendToAllTCP(left);
+	}
 
+	private void handleReceived(Connection connection, Object object) {
 		Player sendingPlayer = playerCons.get(connection.getID());
+		if (sendingPlayer == null) {
+			return;
+		}
 
 		if (object instanceof Integer) {
 			switch (Integer.valueOf(object.toString())) {
@@ -106,15 +246,30 @@ public class CurveServer extends Listener {
 				sendingPlayer.shoot();
 				break;
 			case NetworkConstants.PLAYER_DISCONNECT:
-				playerCons.remove(connection.getID());
+				handleDisconnected(connection);
 				break;
 			default:
 				break;
 			}
+		} else if (object instanceof Network.SnapshotAck) {
+			int tick = ((Network.SnapshotAck) object).tick;
+			Integer acked = ackedTicks.get(connection.getID());
+			if (acked == null || tick > acked) {
+				ackedTicks.put(connection.getID(), tick);
+			}
+		} else if (object instanceof PlayerInput) {
+			// die lteste zuerst, schon angewendete ignoriert der Player
+			PlayerInput input = (PlayerInput) object;
+			for (int i = 0; i < input.size(); i++) {
+				sendingPlayer.applyInput(input.getSequence(i), input.getBits(i));
+			}
+		} else if (object instanceof Network.TrailNack) {
+			sendTrailRepair(connection, (Network.TrailNack) object);
 		} else if (object instanceof PlayerProperties) {
-			PlayerProperties properties = (PlayerProperties) object;
-			sendingPlayer.setProperties(properties);
-			sendPropertiesToAllPlayers();
+			PlayerProperties properties = sendingPlayer.getProperties();
+			properties.copyMetadata((PlayerProperties) object);
+			System.out.println("[SERVER] sending to client name: " + properties.getName());
+			sendToAllTCP(properties);
 		}
 	}
 
@@ -127,16 +282,191 @@ public class CurveServer extends Listener {
 	}
 
 	/**
-	 * Sendet allen Clients die neuen Koordinaten aller Spieler.
+	 * Schickt einem Client die Punkte einer Schlange, die bei ihm fehlen.
+	 */
+	private void sendTrailRepair(Connection connection, Network.TrailNack nack) {
+		Iterator<Player> players = playerCons.values().iterator();
+		while (players.hasNext()) {
+			PlayerProperties props = players.next().getProperties();
+			if (props.getSlot() == nack.slot) {
+				Trail trail = props.getTrail();
+				if (nack.from >= 0 && nack.from < trail.size()) {
+					connection.sendUDP(new TrailRepair(nack.slot, trail, nack.from, nack.to));
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sendet allen Clients die neuen Punkte aller Spieler. Jeder Client bekommt die Positionen als Differenz zu der letzten Snapshot, die er
+	 * besttigt hat. Ist diese zu alt, werden die Positionen absolut bertragen.
+	 * 
+	 * Die Snapshot jedes Ticks wird gespeichert, verschickt wird aber nur an die Clients, deren Intervall (siehe
+	 * {@link #getSnapshotInterval(Connection)}) abgelaufen ist. Sie bekommen die Punkte aller Ticks seit ihrer letzten Snapshot. Als Baseline dient
+	 * die tatschlich an den Client verschickte Snapshot, da sie Slots enthalten kann, die in der Snapshot des letzten Ticks fehlen, z.B. nachdem ein
+	 * Spieler gegangen ist.
 	 */
 	public void sendAllPlayerCoordinates() {
-		HashMap<Integer, PlayerPoint> newPoints = new HashMap<Integer, PlayerPoint>();
+		int tick = (int) simulation.getTick();
+		Snapshot snapshot = new Snapshot(tick);
 		Iterator<Integer> conIDs = playerCons.keySet().iterator();
 		while (conIDs.hasNext()) {
-			int conID = (int) conIDs.next();
-			newPoints.put(conID, playerCons.get(conID).getProperties().getPoints().lastElement());
+			int conID = conIDs.next();
+			PlayerProperties props = playerCons.get(conID).getProperties();
+			Trail trail = props.getTrail();
+			Integer sent = sentPoints.get(conID);
+			int from = Math.max(sent == null ? 0 : sent, trail.size() - MAX_POINTS_PER_SNAPSHOT);
+			for (int i = from; i < trail.size(); i++) {
+				snapshot.add(props.getSlot(), i, trail.getX(i), trail.getY(i), trail.getAngle(i), trail.isActive(i));
+			}
+			// ohne neue Punkte wird der letzte wiederholt, damit jeder Spieler in der Baseline vorkommt
+			if (from == trail.size() && !trail.isEmpty()) {
+				int last = trail.lastIndex();
+				snapshot.add(props.getSlot(), last, trail.getX(last), trail.getY(last), trail.getAngle(last), trail.isActive(last));
+			}
+			sentPoints.put(conID, trail.size());
+		}
+
+		snapshots[tick % Snapshot.HISTORY] = snapshot;
+
+		Iterator<Player> players = playerCons.values().iterator();
+		while (players.hasNext()) {
+			Player player = players.next();
+			Connection connection = player.getConnection();
+			Integer lastSent = lastSnapshotTicks.get(connection.getID());
+			if (lastSent != null && tick - lastSent < getSnapshotInterval(connection)) {
+				continue;
+			}
+			lastSnapshotTicks.put(connection.getID(), tick);
+			Snapshot combined = snapshot;
+			if (lastSent != null && tick - lastSent > 1) {
+				combined = new Snapshot(tick);
+				for (int t = Math.max(lastSent + 1, tick - Snapshot.HISTORY + 1); t <= tick; t++) {
+					Snapshot s = snapshots[t % Snapshot.HISTORY];
+					if (s != null && s.getTick() == t) {
+						combined.addAll(s);
+					}
+				}
+			}
+
+			Snapshot[] sent = sentSnapshots.get(connection.getID());
+			if (sent == null) {
+				sent = new Snapshot[Snapshot.HISTORY];
+				sentSnapshots.put(connection.getID(), sent);
+			}
+			Snapshot baseline = null;
+			Integer acked = ackedTicks.get(connection.getID());
+			if (acked != null && tick - acked < Snapshot.HISTORY) {
+				baseline = sent[acked % Snapshot.HISTORY];
+				if (baseline != null && baseline.getTick() != acked) {
+					baseline = null;
+				}
+			}
+			sent[tick % Snapshot.HISTORY] = combined;
+			connection.sendUDP(combined.deltaTo(baseline, player.isAlive() ? player.getInputSequence() : -1));
+		}
+	}
+
+	/**
+	 * Bestimmt, wie oft ein Client Snapshots bekommt: nicht fter als eingestellt, und bei hoher Return Trip Time seltener, hchstens aber im Abstand
+	 * von {@link GameConstants#MAX_SNAPSHOT_INTERVAL}.
+	 * 
+	 * @return Abstand in Simulationsschritten
+	 */
+	private int getSnapshotInterval(Connection connection) {
+		int interval = settings.snapshotInterval;
+		int rtt = connection.getReturnTripTime();
+		if (rtt > 0) {
+			interval = Math.max(interval, Math.min(rtt / RTT_DIVISOR, GameConstants.MAX_SNAPSHOT_INTERVAL));
+		}
+		return Math.max(1, (interval + settings.tickLength - 1) / settings.tickLength);
+	}
+
+	/**
+	 * Startet die bertragung des kompletten Zustands fr neu verbundene Clients und schickt jeder laufenden bertragung ihr nchstes Stck. Der
+	 * Zustand wird nur einmal serialisiert, auch wenn mehrere Clients gleichzeitig einsteigen.
+	 */
+	private void sendStateTransfers() {
+		if (!stateRequests.isEmpty()) {
+			byte[] data = null;
+			while (!stateRequests.isEmpty()) {
+				Player player = playerCons.get(stateRequests.remove(0));
+				if (player == null) {
+					continue;
+				}
+				if (data == null) {
+					FullState state = new FullState(room, (int) simulation.getTick());
+					data = StateTransfer.encode(player.getConnection().getEndPoint().getKryo(), state);
+				}
+				stateTransfers.put(player.getConnection().getID(), new StateTransfer(data));
+			}
+		}
+		Iterator<Integer> conIDs = stateTransfers.keySet().iterator();
+		while (conIDs.hasNext()) {
+			Player player = playerCons.get(conIDs.next());
+			if (player == null || stateTransfers.get(player.getConnection().getID()).sendNext(player.getConnection())) {
+				conIDs.remove();
+			}
+		}
+	}
+
+	/**
+	 * Schickt die nderungen an Powerups und Schssen aus diesem Schritt per TCP, da keine verloren gehen darf. Ein Client, der gerade den kompletten
+	 * Zustand bekommt, verwirft die Ereignisse der Powerups, die darin schon enthalten sind.
+	 */
+	private void sendRoomEvents() {
+		int tick = (int) simulation.getTick();
+		Vector<PowerupEvent> powerupEvents = room.takePowerupEvents();
+		for (int i = 0; i < powerupEvents.size(); i++) {
+			powerupEvents.get(i).setTick(tick);
+			sendToAllTCP(powerupEvents.get(i));
 		}
-		server.sendToAllUDP(newPoints);
+		Vector<BulletEvent> bulletEvents = room.takeBulletEvents();
+		for (int i = 0; i < bulletEvents.size(); i++) {
+			bulletEvents.get(i).setTick(tick);
+			sendToAllTCP(bulletEvents.get(i));
+		}
+	}
+
+	/**
+	 * Misst regelmig die Return Trip Time aller Clients.
+	 */
+	private void updateReturnTripTimes() {
+		Iterator<Player> players = playerCons.values().iterator();
+		while (players.hasNext()) {
+			players.next().getConnection().updateReturnTripTime();
+		}
+	}
+
+	@Override
+	public void tickStarted(Simulation simulation) {
+		processEvents();
+	}
+
+	/**
+	 * Nach jedem Simulationsschritt werden die neuen Koordinaten verschickt.
+	 */
+	@Override
+	public void ticked(Simulation simulation) {
+		sendAllPlayerCoordinates();
+		sendRoomEvents();
+		sendStateTransfers();
+		if (simulation.getTick() % Math.max(1, GameConstants.PING_INTERVAL / settings.tickLength) == 0) {
+			updateReturnTripTimes();
+		}
+	}
+
+	public boolean isEmpty() {
+		return playerCons.isEmpty();
+	}
+
+	public Room getRoom() {
+		return room;
+	}
+
+	public Simulation getSimulation() {
+		return simulation;
 	}
 
 	public Vector<Player> getPlayers() {
@@ -0,0 +1,78 @@
+package main.server;
+
+import java.util.Arrays;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import main.GameConstants;
+
+import utils.ResourceManager;
+
+import com.esotericsoftware.kryonet.NetworkStats;
+
+/**
+ * Ein dedizierter Server ohne Fenster. Er ldt keine Bilder, Fonts oder Partikeleffekte und braucht daher keinen OpenGL-Kontext. Alle Rume
+ * werden vom RoomManager ber einen gemeinsamen KryoNet-Server bedient und auf einem Thread-Pool getaktet.
+ * 
+ * Start: java main.server.DedicatedServer [Anzahl Threads] [Schrittlnge in ms] [Snapshot-Intervall in ms] [Netzwerk-Threads] [shapes|bitmap]
+ * 
+ * Der letzte Parameter whlt die Kollisionsprfung der Schlangen, damit sich beide Verfahren unter Last vergleichen lassen. Standard ist shapes.
+ */
+public class DedicatedServer {
+	/**
+	 * Abstand in ms, in dem die Netzwerkstatistik ausgegeben wird.
+	 */
+	private static final int STATS_INTERVAL = 60000;
+
+	public static void main(String[] args) {
+		ResourceManager.setHeadless(true);
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 0) {
+			threads = Integer.parseInt(args[0]);
+		}
+		int tickLength = GameConstants.SIMULATION_TICK;
+		if (args.length > 1) {
+			tickLength = Integer.parseInt(args[1]);
+		}
+		int snapshotInterval = GameConstants.SNAPSHOT_INTERVAL;
+		if (args.length > 2) {
+			snapshotInterval = Integer.parseInt(args[2]);
+		}
+		int selectorThreads = 0;
+		if (args.length > 3) {
+			selectorThreads = Integer.parseInt(args[3]);
+		}
+		int collisionMode = GameConstants.COLLISION_MODE_SHAPES;
+		if (args.length > 4) {
+			collisionMode = parseCollisionMode(args[4]);
+		}
+		final RoomManager manager = new RoomManager(tickLength, snapshotInterval, selectorThreads);
+		manager.setCollisionMode(collisionMode);
+		manager.startScheduler(threads);
+		System.out.println("[SERVER] dedicated server running on " + manager.getIP() + " with " + threads + " threads, tick " + tickLength
+				+ " ms, snapshots every " + snapshotInterval + " ms, " + (collisionMode == GameConstants.COLLISION_MODE_BITMAP ? "bitmap" : "shape")
+				+ " collision");
+		new Timer("network stats", true).scheduleAtFixedRate(new TimerTask() {
+			@Override
+			public void run() {
+				NetworkStats stats = manager.getNetworkStats();
+				System.out.println("[SERVER] network: " + stats + ", return trip times " + Arrays.toString(stats.getReturnTripHistogram()));
+			}
+		}, STATS_INTERVAL, STATS_INTERVAL);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				manager.shutdown();
+			}
+		});
+	}
+
+	private static int parseCollisionMode(String mode) {
+		if (mode.equals("shapes")) {
+			return GameConstants.COLLISION_MODE_SHAPES;
+		} else if (mode.equals("bitmap")) {
+			return GameConstants.COLLISION_MODE_BITMAP;
+		}
+		throw new IllegalArgumentException("unknown collision mode: " + mode + ", expected shapes or bitmap");
+	}
+}
@@ -4,8 +4,14 @@ import java.awt.Point;
 import java.util.HashMap;
 import java.util.Vector;
 
+import main.BulletEvent;
+import main.PlayerInput;
 import main.PlayerPoint;
 import main.PlayerProperties;
+import main.PowerupEvent;
+import main.Snapshot;
+import main.Trail;
+import main.TrailRepair;
 
 import org.newdawn.slick.Color;
 
@@ -14,7 +20,55 @@ import com.esotericsoftware.kryonet.EndPoint;
 import com.esotericsoftware.kryonet.Server;
 
 public class Network {
+
+	/**
+	 * Ein Client wechselt in den Raum mit der angegebenen ID. Clients, die diese Nachricht nicht schicken, landen im Standardraum.
+	 */
+	public static class JoinRoom {
+		public int roomID;
+	}
 	
+	/**
+	 * Besttigt dem Server den Empfang einer {@link Snapshot}, die er danach als Baseline fr die Differenzen benutzen darf.
+	 */
+	public static class SnapshotAck {
+		public int tick;
+	}
+
+	/**
+	 * Der Client vermisst die Punkte from bis to (exklusiv) der Schlange im Slot slot. Der Server antwortet mit einem {@link TrailRepair}.
+	 */
+	public static class TrailNack {
+		public int slot;
+		public int from;
+		public int to;
+	}
+
+	/**
+	 * Schickt der Server nach dem Verbinden, damit Vorhersage und Interpolation des Clients mit derselben Schrittlnge rechnen.
+	 */
+	public static class ServerSettings {
+		public int tickLength;
+		public int snapshotInterval;
+	}
+
+	/**
+	 * Ein Spieler hat den Raum verlassen. Dass einer dazukommt oder sich ndert, erfahren die Clients ber seine PlayerProperties.
+	 */
+	public static class PlayerLeft {
+		public int connectionID;
+	}
+
+	/**
+	 * Ein Stck eines komprimierten {@link main.FullState}, siehe {@link StateTransfer}.
+	 */
+	public static class StateChunk {
+		public int transferID;
+		public int index;
+		public int count;
+		public byte[] data;
+	}
+
 	public static void registerClasses(EndPoint ep){
 		Kryo kryo = ep.getKryo();
 		kryo.register(HashMap.class);
@@ -24,6 +78,19 @@ public class Network {
 		kryo.register(Server.class);
 		kryo.register(Color.class);
 		kryo.register(PlayerProperties.class);
+		kryo.register(Trail.class);
+		kryo.register(JoinRoom.class);
+		kryo.register(Snapshot.class);
+		kryo.register(SnapshotAck.class);
+		kryo.register(TrailNack.class);
+		kryo.register(TrailRepair.class);
+		kryo.register(PlayerInput.class);
+		kryo.register(ServerSettings.class);
+		kryo.register(byte[].class);
+		kryo.register(StateChunk.class);
+		kryo.register(PlayerLeft.class);
+		kryo.register(PowerupEvent.class);
+		kryo.register(BulletEvent.class);
 	}
 
 }
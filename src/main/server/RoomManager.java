@@ -0,0 +1,230 @@
+package main.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import main.GameConstants;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.kryonet.NetworkStats;
+import com.esotericsoftware.kryonet.Server;
+
+/**
+ * Betreibt beliebig viele Rume ber einen einzigen KryoNet-Server. Jede Connection gehrt zu genau einem Raum (zu Beginn
+ * {@link #DEFAULT_ROOM}), alle Ereignisse werden an den {@link CurveServer} dieses Raums weitergereicht. Mit {@link Network.JoinRoom} wechselt ein
+ * Client den Raum.
+ * 
+ * Auf einem dedizierten Server werden alle Rume von einem gemeinsamen Scheduler getaktet, siehe {@link #startScheduler(int)}. Beim Host-Spieler
+ * taktet stattdessen die GameState den Standardraum. Weitere Rume wrden dort nie laufen, ohne Scheduler werden daher keine angelegt.
+ */
+public class RoomManager extends Listener {
+	public static final int DEFAULT_ROOM = 0;
+
+	private Server server;
+	private HashMap<Integer, CurveServer> rooms = new HashMap<Integer, CurveServer>();
+	private HashMap<Integer, CurveServer> connectionRooms = new HashMap<Integer, CurveServer>();
+	private HashMap<Integer, ScheduledFuture<?>> roomTasks = new HashMap<Integer, ScheduledFuture<?>>();
+	private ScheduledExecutorService scheduler = null;
+	private int tickLength;
+	private int snapshotInterval;
+	private int collisionMode = GameConstants.COLLISION_MODE_SHAPES;
+
+	public RoomManager() {
+		this(GameConstants.SIMULATION_TICK, GameConstants.SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * @param tickLength
+	 *            - Lnge eines Simulationsschritts in ms, fr alle Rume
+	 * @param snapshotInterval
+	 *            - Abstand zwischen zwei Snapshots an einen Client in ms
+	 */
+	public RoomManager(int tickLength, int snapshotInterval) {
+		this(tickLength, snapshotInterval, 0);
+	}
+
+	/**
+	 * @param selectorThreads
+	 *            - Anzahl zustzlicher Threads fr die Verbindungen, 0 fr nur einen. Die Rume vertragen das, da sie die Ereignisse nur in ihre
+	 *            Warteschlange stellen.
+	 */
+	public RoomManager(int tickLength, int snapshotInterval, int selectorThreads) {
+		this.tickLength = tickLength;
+		this.snapshotInterval = snapshotInterval;
+		createRoom(DEFAULT_ROOM);
+		try {
+			server = new Server(16384, 2048, new Kryo(), selectorThreads);
+			Network.registerClasses(server);
+			server.addListener(this);
+			server.start();
+			server.bind(GameConstants.PORT_TCP, GameConstants.PORT_UDP);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Taktet alle bestehenden und neuen Rume in festen Schritten auf einem gemeinsamen Thread-Pool. Ein Raum luft dabei nie auf zwei Threads
+	 * gleichzeitig.
+	 * 
+	 * @param threads
+	 *            - Anzahl der Threads
+	 */
+	public synchronized void startScheduler(int threads) {
+		scheduler = Executors.newScheduledThreadPool(threads);
+		for (CurveServer room : rooms.values()) {
+			scheduleRoom(room);
+		}
+	}
+
+	private void scheduleRoom(final CurveServer room) {
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					room.update(tickLength);
+				} catch (Exception e) {
+					// eine Exception wrde den Raum sonst stillschweigend anhalten
+					e.printStackTrace();
+				}
+			}
+		};
+		roomTasks.put(room.getRoom().getID(), scheduler.scheduleAtFixedRate(task, 0, tickLength, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Whlt aus, wie in allen bestehenden und neuen Rumen die Kollision der Schlangen geprft wird, siehe {@link main.Room#setCollisionMode(int)}.
+	 * Muss vor {@link #startScheduler(int)} aufgerufen werden, da die Rume danach nur noch von ihrem eigenen Thread verndert werden.
+	 * 
+	 * @param mode
+	 *            - GameConstants.COLLISION_MODE_SHAPES oder GameConstants.COLLISION_MODE_BITMAP
+	 */
+	public synchronized void setCollisionMode(int mode) {
+		collisionMode = mode;
+		for (CurveServer room : rooms.values()) {
+			room.getRoom().setCollisionMode(mode);
+		}
+	}
+
+	public synchronized CurveServer createRoom(int roomID) {
+		CurveServer room = new CurveServer(roomID, tickLength, snapshotInterval);
+		room.getRoom().setCollisionMode(collisionMode);
+		rooms.put(roomID, room);
+		if (scheduler != null) {
+			scheduleRoom(room);
+		}
+		return room;
+	}
+
+	/**
+	 * Entfernt einen leeren Raum. Der Standardraum bleibt immer bestehen.
+	 */
+	private synchronized void removeRoomIfEmpty(CurveServer room) {
+		int roomID = room.getRoom().getID();
+		// der Raum selbst erfhrt erst im nchsten Schritt von der Abmeldung
+		if (roomID == DEFAULT_ROOM || connectionRooms.containsValue(room)) {
+			return;
+		}
+		rooms.remove(roomID);
+		ScheduledFuture<?> task = roomTasks.remove(roomID);
+		if (task != null) {
+			task.cancel(false);
+		}
+	}
+
+	public synchronized CurveServer getRoom(int roomID) {
+		return rooms.get(roomID);
+	}
+
+	public synchronized int getRoomCount() {
+		return rooms.size();
+	}
+
+	/**
+	 * Verschiebt eine Connection in einen anderen Raum. Existiert der Raum noch nicht, wird er angelegt, aber nur, wenn der Scheduler luft. Sonst
+	 * bleibt die Connection in ihrem Raum.
+	 */
+	private synchronized void joinRoom(Connection connection, int roomID) {
+		if (!rooms.containsKey(roomID) && scheduler == null) {
+			System.out.println("[SERVER] not creating room " + roomID + " for connection " + connection.getID()
+					+ ", rooms are only scheduled on a dedicated server");
+			return;
+		}
+		CurveServer oldRoom = connectionRooms.remove(connection.getID());
+		if (oldRoom != null) {
+			oldRoom.disconnected(connection);
+			removeRoomIfEmpty(oldRoom);
+		}
+		CurveServer room = rooms.get(roomID);
+		if (room == null) {
+			room = createRoom(roomID);
+		}
+		connectionRooms.put(connection.getID(), room);
+		room.connected(connection);
+	}
+
+	private synchronized CurveServer getRoomOf(Connection connection) {
+		return connectionRooms.get(connection.getID());
+	}
+
+	@Override
+	public void connected(Connection connection) {
+		joinRoom(connection, DEFAULT_ROOM);
+	}
+
+	@Override
+	public void received(Connection connection, Object object) {
+		if (object instanceof Network.JoinRoom) {
+			joinRoom(connection, ((Network.JoinRoom) object).roomID);
+			return;
+		}
+		CurveServer room = getRoomOf(connection);
+		if (room != null) {
+			room.received(connection, object);
+		}
+	}
+
+	@Override
+	public void disconnected(Connection connection) {
+		CurveServer room;
+		synchronized (this) {
+			room = connectionRooms.remove(connection.getID());
+		}
+		if (room != null) {
+			room.disconnected(connection);
+			removeRoomIfEmpty(room);
+		}
+	}
+
+	public void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		server.stop();
+	}
+
+	/**
+	 * @return die Verkehrszhler aller Verbindungen, knnen ohne Sperre abgefragt werden
+	 */
+	public NetworkStats getNetworkStats() {
+		return server.getStats();
+	}
+
+	public InetAddress getIP() {
+		try {
+			return InetAddress.getLocalHost();
+		} catch (UnknownHostException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+}
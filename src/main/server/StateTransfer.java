@@ -0,0 +1,118 @@
+package main.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import main.FullState;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryonet.Connection;
+
+/**
+ * bertrgt einen {@link FullState} an einen Client, der in eine laufende Runde einsteigt. Der Zustand wird einmal serialisiert und komprimiert und
+ * dann in Stcken von {@link #CHUNK_SIZE} Bytes per TCP verschickt, ein Stck pro Simulationsschritt. Samt Kopf passt jedes Stck in den
+ * Objektpuffer von Server und Client (2048 Bytes), und die Snapshots laufen whrenddessen weiter.
+ */
+public class StateTransfer {
+	public static final int CHUNK_SIZE = 1024;
+	// eindeutig ber alle Rume, da ein Client den Raum wechseln kann
+	private static final AtomicInteger nextTransferID = new AtomicInteger();
+
+	private int transferID;
+	private byte[] data;
+	private int nextChunk = 0;
+	private int chunkCount;
+
+	/**
+	 * @param data
+	 *            - der mit {@link #encode(Kryo, FullState)} erzeugte Zustand, kann fr mehrere Clients benutzt werden
+	 */
+	public StateTransfer(byte[] data) {
+		transferID = nextTransferID.getAndIncrement();
+		this.data = data;
+		chunkCount = Math.max(1, (data.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+	}
+
+	/**
+	 * Schickt das nchste Stck. Liegt von den vorigen Stcken noch mehr als eins ungesendet im Schreibpuffer, liest der Client zu langsam, das Stck
+	 * wird dann erst in einem spteren Simulationsschritt verschickt, statt den Puffer zum berlaufen zu bringen.
+	 *
+	 * @return true, wenn alle Stcke verschickt sind
+	 */
+	public boolean sendNext(Connection connection) {
+		if (connection.getTcpQueuedBytes() > CHUNK_SIZE) {
+			return false;
+		}
+		Network.StateChunk chunk = new Network.StateChunk();
+		chunk.transferID = transferID;
+		chunk.index = nextChunk;
+		chunk.count = chunkCount;
+		int from = nextChunk * CHUNK_SIZE;
+		chunk.data = Arrays.copyOfRange(data, from, Math.min(from + CHUNK_SIZE, data.length));
+		connection.sendTCP(chunk);
+		nextChunk++;
+		return nextChunk == chunkCount;
+	}
+
+	/**
+	 * Serialisiert und komprimiert einen Zustand.
+	 */
+	public static byte[] encode(Kryo kryo, FullState state) {
+		int size = 64 * 1024;
+		ByteBuffer buffer;
+		while (true) {
+			buffer = ByteBuffer.allocate(size);
+			try {
+				state.writeObjectData(kryo, buffer);
+				break;
+			} catch (BufferOverflowException e) {
+				size *= 2;
+			}
+		}
+		Deflater deflater = new Deflater();
+		deflater.setInput(buffer.array(), 0, buffer.position());
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] block = new byte[CHUNK_SIZE];
+		while (!deflater.finished()) {
+			out.write(block, 0, deflater.deflate(block));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Entpackt einen mit {@link #encode(Kryo, FullState)} erzeugten Zustand.
+	 *
+	 * @return der Zustand oder null, wenn die Daten beschdigt sind
+	 */
+	public static FullState decode(Kryo kryo, byte[] data) {
+		Inflater inflater = new Inflater();
+		inflater.setInput(data);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] block = new byte[CHUNK_SIZE];
+		try {
+			while (!inflater.finished()) {
+				int length = inflater.inflate(block);
+				if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					return null;
+				}
+				out.write(block, 0, length);
+			}
+		} catch (DataFormatException e) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			inflater.end();
+		}
+		FullState state = new FullState();
+		state.readObjectData(kryo, ByteBuffer.wrap(out.toByteArray()));
+		return state;
+	}
+}
@@ -3,13 +3,18 @@ package states;
 import java.util.Iterator;
 import java.util.Vector;
 
+import main.Bullet;
 import main.JCurve;
 import main.NetworkConstants;
 import main.Player;
 import main.PlayerProperties;
+import main.Simulation;
 import main.client.CurveClient;
+import main.client.Interpolation;
+import main.client.Prediction;
 import main.powerup.Powerup;
 import main.server.CurveServer;
+import main.server.RoomManager;
 
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
@@ -31,13 +36,10 @@ import utils.ResourceManager;
 public class GameState extends JCurveState {
 
 	private CurveServer curveServer;
-
-	private int playerDelta = 30;
-	private int playerCurDelta = 0;
+	private Simulation simulation;
 
 	private boolean playerBoost = false;
-
-	private long loopDuration;
+	private boolean shootPressed = false;
 
 	public GameState(int id) {
 		super(id);
@@ -60,19 +62,18 @@ public class GameState extends JCurveState {
 		
 		if (JCurve.server != null) {
 			System.out.println("This player is the server. Server is running...");
-			curveServer = JCurve.server;
+			curveServer = JCurve.server.getRoom(RoomManager.DEFAULT_ROOM);
+			simulation = curveServer.getSimulation();
 		} else {
 			System.out.println("This player is just a client. Running...");
 		}
+		getClient().sendTCP(NetworkConstants.GAME_START);
 	}
 
 	@Override
 	public void render(GameContainer container, StateBasedGame game, Graphics g) throws SlickException {
 		super.render(container, game, g);
 
-		// TODO der client muss die powerups auch rendern! aber nur der server
-		// darf sie spawnen, bzw. berechnen
-
 		if (curveServer != null) {
 			Iterator<Player> players = curveServer.getPlayerCons().values().iterator();
 			for (int i = 0; i < curveServer.getPlayers().size(); i++) {
@@ -84,14 +85,41 @@ public class GameState extends JCurveState {
 				System.out.println("> Rendering: " + p.getProperties().getName());
 				p.render(g);
 			}
-			for (int i = 0; i < Powerup.getPowerups().size(); i++) {
-				Powerup.getPowerups().get(i).render();
+			Vector<Powerup> powerups = curveServer.getRoom().getPowerups();
+			for (int i = 0; i < powerups.size(); i++) {
+				powerups.get(i).render();
 			}
 		} else {
+			// die anderen Spieler werden leicht verzgert und zwischen zwei Snapshots interpoliert gezeichnet
 			Vector<PlayerProperties> playerProperties = CurveClient.getInstance().getPlayerProperties();
-			for (int i = 0; i < playerProperties.size(); i++) {
-				PlayerProperties pp = playerProperties.get(i);
-				pp.render(g);
+			PlayerProperties own = CurveClient.getInstance().getOwnProperties();
+			Interpolation interpolation = CurveClient.getInstance().getInterpolation();
+			long now = System.currentTimeMillis();
+			synchronized (playerProperties) {
+				for (int i = 0; i < playerProperties.size(); i++) {
+					PlayerProperties pp = playerProperties.get(i);
+					if (pp != own && interpolation.interpolate(pp.getSlot(), now)) {
+						pp.render(g, interpolation.getIndex() + 1);
+						pp.renderHead(g, interpolation.getX(), interpolation.getY(), interpolation.getAngle());
+					} else {
+						pp.render(g);
+					}
+				}
+			}
+			if (own != null) {
+				CurveClient.getInstance().getPrediction().render(g, own);
+			}
+			Vector<Powerup> powerups = CurveClient.getInstance().getPowerups();
+			synchronized (powerups) {
+				for (int i = 0; i < powerups.size(); i++) {
+					powerups.get(i).render();
+				}
+			}
+			Vector<Bullet> bullets = CurveClient.getInstance().getBullets();
+			synchronized (bullets) {
+				for (int i = 0; i < bullets.size(); i++) {
+					bullets.get(i).render(g);
+				}
 			}
 		}
 	}
@@ -111,59 +139,62 @@ public class GameState extends JCurveState {
 	 *            - ms seit letztem Update
 	 */
 	private void updateClientLogic(int delta) {
-		// Bewegungen
+		// die Kopien der Powerups blenden sich selbst ein und aus, entfernt werden sie nur vom Server
+		if (curveServer == null) {
+			Vector<Powerup> powerups = CurveClient.getInstance().getPowerups();
+			synchronized (powerups) {
+				for (int i = 0; i < powerups.size(); i++) {
+					powerups.get(i).update(delta);
+				}
+			}
+			CurveClient.getInstance().updateBullets(delta);
+		}
+
+		// Bewegungen, die eigene Schlange wird sofort vorhergesagt
+		int direction = NetworkConstants.PLAYER_MOVE_STRAIGHT;
 		if (container.getInput().isKeyDown(Input.KEY_LEFT) || container.getInput().isKeyDown(Input.KEY_A))
-			getClient().sendUDP(NetworkConstants.PLAYER_MOVE_LEFT);
+			direction = NetworkConstants.PLAYER_MOVE_LEFT;
 		else if (container.getInput().isKeyDown(Input.KEY_RIGHT) || container.getInput().isKeyDown(Input.KEY_D))
-			getClient().sendUDP(NetworkConstants.PLAYER_MOVE_RIGHT);
-		else
-			getClient().sendUDP(NetworkConstants.PLAYER_MOVE_STRAIGHT);
-
-		// Schieen
-		if (container.getInput().isKeyPressed(Input.KEY_SPACE))
-			getClient().sendUDP(NetworkConstants.PLAYER_SHOOT);
-
+			direction = NetworkConstants.PLAYER_MOVE_RIGHT;
 		// Boost
-		if (container.getInput().isKeyDown(Input.KEY_LSHIFT)) {
-			getClient().sendUDP(NetworkConstants.PLAYER_BOOST_ENABLE);
-			playerBoost = true;
-		} else {
-			if (playerBoost) {
-				getClient().sendUDP(NetworkConstants.PLAYER_BOOST_DISABLE);
-				playerBoost = false;
-			}
+		playerBoost = container.getInput().isKeyDown(Input.KEY_LSHIFT);
+		// Schieen, bis zum nchsten Schritt gemerkt
+		if (container.getInput().isKeyPressed(Input.KEY_SPACE))
+			shootPressed = true;
+
+		// die Eingabe geht einmal pro Schritt raus, und auch nur, wenn sie sich gendert hat
+		Prediction prediction = CurveClient.getInstance().getPrediction();
+		if (prediction.update(delta, direction, playerBoost) > 0) {
+			int bits = 0;
+			if (direction == NetworkConstants.PLAYER_MOVE_LEFT)
+				bits |= NetworkConstants.INPUT_LEFT;
+			else if (direction == NetworkConstants.PLAYER_MOVE_RIGHT)
+				bits |= NetworkConstants.INPUT_RIGHT;
+			if (playerBoost)
+				bits |= NetworkConstants.INPUT_BOOST;
+			if (shootPressed)
+				bits |= NetworkConstants.INPUT_SHOOT;
+			shootPressed = false;
+			CurveClient.getInstance().sendInput(prediction.getSequence(), bits);
 		}
 	}
 
 	/**
-	 * Update-Schleife des Servers. Er schickt die Koordinaten an alle Spieler und sorgt dafr, dass Powerups zufllig auf der Karte erscheinen.
+	 * Update-Schleife des Servers. Die Simulation bewegt die Spieler in festen Schritten und schickt nach jedem Schritt die Koordinaten an alle
+	 * Spieler. Powerups erscheinen zufllig auf der Karte.
 	 * 
-	 * TODO: das darf nur der server machen und muss es an die clients schickenmomentan berechnet jeder client das fr sich selber inkls. spawnt eigene poweurps.
+	 * Die Netzwerkereignisse arbeitet die Simulation zu Beginn jedes Schritts selbst ab, der Raum wird also nur von diesem Thread verndert.
 	 * 
 	 * @param delta
 	 *            - ms seit letztem Update
 	 */
 	private void updateServerLogic(int delta) {
-		playerCurDelta += delta;
-		if (playerCurDelta > playerDelta - loopDuration) {
-			loopDuration = System.currentTimeMillis();
-			playerCurDelta = 0;
-			Iterator<Player> players = curveServer.getPlayerCons().values().iterator();
-			while (players.hasNext()) {
-				Player p = players.next();
-				p.update(delta);
-				if (!p.move()) {
-					p.die();
-				}
-			}
-			curveServer.sendAllPlayerCoordinates();
-			loopDuration = System.currentTimeMillis() - loopDuration;
-		}
+		simulation.update(delta);
 
-		// TODO: server-client richtig umsetzen
-		Powerup.powerupSpawner();
-		for (int i = 0; i < Powerup.getPowerups().size(); i++) {
-			Powerup.getPowerups().get(i).update(delta);
+		// die Partikeleffekte laufen mit der Framerate
+		Iterator<Player> players = curveServer.getPlayerCons().values().iterator();
+		while (players.hasNext()) {
+			players.next().updateEffects(delta);
 		}
 	}
 
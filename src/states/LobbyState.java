@@ -16,6 +16,7 @@ import main.Player;
 import main.PlayerProperties;
 import main.client.CurveClient;
 import main.server.CurveServer;
+import main.server.RoomManager;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
@@ -41,7 +42,7 @@ public class LobbyState extends JCurveState {
 	public static final String MSG_WAIT_DOTS = "...";
 
 	public static final int TEXTFIELD_HEIGHT = 24;
-	public static final int MIN_PLAYERS_TO_PLAY = 2;
+	public static final int MIN_PLAYERS_TO_PLAY = GameConstants.MIN_PLAYERS;
 
 	private Vector<Player> players = new Vector<Player>();
 
@@ -103,7 +104,7 @@ public class LobbyState extends JCurveState {
 		super.enter(container, game);
 
 		if (JCurve.createServer && JCurve.server == null) {
-			JCurve.server = new CurveServer();
+			JCurve.server = new RoomManager();
 
 			// add self to server
 			CurveClient.getInstance().connect(JCurve.server.getIP());
@@ -132,7 +133,10 @@ public class LobbyState extends JCurveState {
 		super.update(container, game, delta);
 
 		if (JCurve.server != null) {
-			HashMap<Integer, Player> playerCons = JCurve.server.getPlayerCons();
+			// die Simulation luft spter im Spiel-Thread, also werden die Ereignisse schon hier abgearbeitet
+			CurveServer curveServer = JCurve.server.getRoom(RoomManager.DEFAULT_ROOM);
+			curveServer.processEvents();
+			HashMap<Integer, Player> playerCons = curveServer.getPlayerCons();
 			Iterator<Player> iter = playerCons.values().iterator();
 			while (iter.hasNext()) {
 				Player p = iter.next();
@@ -140,10 +144,13 @@ public class LobbyState extends JCurveState {
 			}
 		} else {
 			Vector<PlayerProperties> properties = CurveClient.getInstance().getPlayerProperties();
-			for (int i = 0; i < properties.size(); i++) {
-				Player player = new Player();
-				player.setProperties(properties.get(i));
-				addPlayer(player);
+			// der Netzwerk-Thread entfernt Spieler, die gegangen sind
+			synchronized (properties) {
+				for (int i = 0; i < properties.size(); i++) {
+					Player player = new Player();
+					player.setProperties(properties.get(i));
+					addPlayer(player);
+				}
 			}
 		}
 
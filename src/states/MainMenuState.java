@@ -10,6 +10,7 @@ import main.GameConstants;
 import main.JCurve;
 import main.Player;
 import main.PlayerPoint;
+import main.Trail;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
@@ -164,12 +165,11 @@ public class MainMenuState extends JCurveState {
 	 *            - Graphics-Objekt
 	 */
 	private void renderBotSnake(Graphics g) {
-		Image tmpImg = null;
-		Player p = bot;
-		for (int i = 0; i < p.getProperties().getPoints().size() - 1; i++) {
-			tmpImg = ResourceManager.getImage(p.getProperties().getImageKey()).copy();
-			tmpImg.setRotation((float) Math.toDegrees(p.getProperties().getPoints().get(i).getAngle()));
-			g.drawImage(tmpImg, p.getProperties().getPoints().get(i).x, p.getProperties().getPoints().get(i).y, botColor);
+		Image tmpImg = ResourceManager.getImage(bot.getProperties().getImageKey()).copy();
+		Trail trail = bot.getProperties().getTrail();
+		for (int i = 0; i < trail.size() - 1; i++) {
+			tmpImg.setRotation((float) Math.toDegrees(trail.getAngle(i)));
+			g.drawImage(tmpImg, trail.getX(i), trail.getY(i), botColor);
 		}
 	}
 
@@ -185,7 +185,8 @@ public class MainMenuState extends JCurveState {
 		int borderLeft = GameConstants.APP_WIDHT / 2;
 		int borderRight = GameConstants.APP_WIDHT;
 
-		PlayerPoint lastPoint = bot.getProperties().getPoints().lastElement();
+		Trail trail = bot.getProperties().getTrail();
+		PlayerPoint lastPoint = trail.getPoint(trail.lastIndex());
 
 		double angle = Math.toDegrees(lastPoint.getAngle());
 		angle %= 360;
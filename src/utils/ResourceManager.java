@@ -17,6 +17,8 @@ public class ResourceManager {
 	private static HashMap<String, UnicodeFont> fonts = new HashMap<String, UnicodeFont>();
 	private static HashMap<String, Image> images = new HashMap<String, Image>();
 
+	private static boolean headless = false;
+
 	@SuppressWarnings("unchecked")
 	public static void addFont(String fontName, String fileName, int fontSize, boolean isBold, boolean isItalic) {
 		if (!fonts.containsKey(fontName)) {
@@ -50,4 +52,17 @@ public class ResourceManager {
 	public static Image getImage(String key) {
 		return images.get(key);
 	}
+
+	/**
+	 * Im Headless-Modus (dedizierter Server ohne Fenster) werden keine Bilder und Partikeleffekte geladen, da dafr ein OpenGL-Kontext ntig ist.
+	 * 
+	 * @param headless
+	 */
+	public static void setHeadless(boolean headless) {
+		ResourceManager.headless = headless;
+	}
+
+	public static boolean isHeadless() {
+		return headless;
+	}
 }